@@ -0,0 +1,177 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragnlp;
+
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of pipelines of one profile. A pipeline is used by one thread
+ * at a time: callers check one out, annotate and return it. Pipelines are
+ * created lazily up to the maximum; once all are in use callers wait for
+ * one to be returned. Pipelines built from the same properties share their
+ * annotators through CoreNLP's annotator pool, so the models are loaded
+ * only once however many pipelines there are.
+ *
+ * @author Jukka
+ */
+public class CoreNlpPipelinePool {
+
+    private static final Logger log = LoggerFactory.getLogger(CoreNlpPipelinePool.class);
+
+    public record Stats(
+            CoreNlpProfile profile,
+            int maxSize,
+            int created,
+            int idle,
+            long checkouts,
+            long timeouts,
+            double avgWaitMs,
+            double maxWaitMs,
+            long parses,
+            double avgParseMs,
+            double maxParseMs) {
+
+    }
+
+    private static final long WARM_UP_POLL_MS = 100;
+
+    private final CoreNlpProfile profile;
+    private final Supplier<StanfordCoreNLP> factory;
+    private final int maxSize;
+    private final long waitTimeoutMs;
+
+    private final BlockingQueue<StanfordCoreNLP> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong parses = new AtomicLong();
+    private final AtomicLong parseNanos = new AtomicLong();
+    private final AtomicLong maxParseNanos = new AtomicLong();
+
+    public CoreNlpPipelinePool(CoreNlpProfile profile, Supplier<StanfordCoreNLP> factory, int maxSize, long waitTimeoutMs) {
+        this.profile = profile;
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.waitTimeoutMs = waitTimeoutMs;
+    }
+
+    /**
+     * Annotates the document on a checked out pipeline.
+     *
+     * @throws IllegalStateException if no pipeline became free within the
+     * wait timeout
+     */
+    public void annotate(Annotation doc) {
+        StanfordCoreNLP pipeline = this.checkout();
+        long t0 = System.nanoTime();
+        try {
+            pipeline.annotate(doc);
+        } finally {
+            long took = System.nanoTime() - t0;
+            parses.incrementAndGet();
+            parseNanos.addAndGet(took);
+            maxParseNanos.accumulateAndGet(took, Math::max);
+            idle.offer(pipeline);
+        }
+    }
+
+    /**
+     * Returns once at least one pipeline exists, creating it if needed. If
+     * another thread is already creating the first pipeline this waits for
+     * it, without the checkout wait timeout, and takes over the creation if
+     * that attempt fails.
+     */
+    public void warmUp() {
+        StanfordCoreNLP pipeline;
+        while ((pipeline = this.acquire(WARM_UP_POLL_MS)) == null) {
+            // Pipeline still being created elsewhere, or its creation failed: try again
+        }
+        idle.offer(pipeline);
+    }
+
+    private StanfordCoreNLP checkout() {
+        long t0 = System.nanoTime();
+        try {
+            StanfordCoreNLP pipeline = this.acquire(waitTimeoutMs);
+            if (pipeline == null) {
+                timeouts.incrementAndGet();
+                throw new IllegalStateException("No CoreNLP " + profile + " pipeline available within " + waitTimeoutMs + "ms");
+            }
+            return pipeline;
+        } finally {
+            long waited = System.nanoTime() - t0;
+            checkouts.incrementAndGet();
+            waitNanos.addAndGet(waited);
+            maxWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+    }
+
+    /**
+     * Takes an idle pipeline, creates one if below the maximum, or else
+     * waits for one to be returned.
+     *
+     * @param timeoutMs how long to wait, or 0 to wait indefinitely
+     * @return the pipeline, or null if none was returned in time
+     */
+    private StanfordCoreNLP acquire(long timeoutMs) {
+        StanfordCoreNLP pipeline = idle.poll();
+        if (pipeline != null) {
+            return pipeline;
+        }
+        int n = created.get();
+        while (n < maxSize) {
+            if (created.compareAndSet(n, n + 1)) {
+                try {
+                    pipeline = factory.get();
+                } catch (RuntimeException e) {
+                    created.decrementAndGet();
+                    throw e;
+                }
+                log.debug("CoreNLP {} pipeline {}/{} created", profile, n + 1, maxSize);
+                return pipeline;
+            }
+            n = created.get();
+        }
+        try {
+            return timeoutMs > 0 ? idle.poll(timeoutMs, TimeUnit.MILLISECONDS) : idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a CoreNLP " + profile + " pipeline", e);
+        }
+    }
+
+    public CoreNlpProfile getProfile() {
+        return profile;
+    }
+
+    public Stats getStats() {
+        long c = checkouts.get();
+        long p = parses.get();
+        return new Stats(
+                profile,
+                maxSize,
+                created.get(),
+                idle.size(),
+                c,
+                timeouts.get(),
+                c == 0 ? 0.0 : waitNanos.get() / 1_000_000.0 / c,
+                maxWaitNanos.get() / 1_000_000.0,
+                p,
+                p == 0 ? 0.0 : parseNanos.get() / 1_000_000.0 / p,
+                maxParseNanos.get() / 1_000_000.0);
+    }
+}
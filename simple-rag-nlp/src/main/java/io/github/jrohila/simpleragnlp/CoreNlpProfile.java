@@ -0,0 +1,30 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragnlp;
+
+/**
+ * Named CoreNLP annotator sets. Each profile has its own pipeline pool in
+ * {@link StanfordCoreNlpFactory}.
+ *
+ * @author Jukka
+ */
+public enum CoreNlpProfile {
+
+    /**
+     * tokenize, ssplit, pos, lemma and depparse (or the constituency parser
+     * when no dependency model is on the classpath).
+     */
+    FULL,
+    /**
+     * Short query texts: the same dependency graph as FULL without lemma, and
+     * a lower sentence length cap for the constituency parser fallback.
+     */
+    QUERY,
+    /**
+     * tokenize, ssplit and pos only, for callers that do not need a
+     * dependency graph.
+     */
+    TAGGER
+}
@@ -8,16 +8,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import opennlp.tools.langdetect.Language;
 import opennlp.tools.langdetect.LanguageDetectorME;
 import opennlp.tools.langdetect.LanguageDetectorModel;
+import opennlp.tools.models.ClassPathModelProvider;
+import opennlp.tools.models.DefaultClassPathModelProvider;
+import opennlp.tools.models.ModelType;
+import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
 import opennlp.tools.sentdetect.SentenceDetectorME;
 import opennlp.tools.sentdetect.SentenceModel;
 
 /**
+ * Registry of the OpenNLP models. Each model is immutable and thread-safe,
+ * and is loaded once, on first use. The *ME classes that run a model keep
+ * per-call state and must not be shared between threads, so every thread
+ * gets its own instance of each; creating one is cheap next to loading the
+ * model.
  *
  * @author Jukka
  */
@@ -38,50 +48,15 @@ public class OpenNlpFactory {
             "/models/lang/opennlp-langdetect-187-2.5.4.bin"
     );
 
-    private volatile SentenceDetectorME enSentenceDetector;
-    private volatile POSTaggerME enPosTagger;
-    private volatile LanguageDetectorME langDetector;
+    private final LazyModel<SentenceModel> enSentenceModel = new LazyModel<>("English sentence", this::loadEnSentenceModel);
+    private final LazyModel<POSModel> enPosModel = new LazyModel<>("English POS", this::loadEnPosModel);
+    private final LazyModel<LanguageDetectorModel> langModel = new LazyModel<>("language detector", this::loadLanguageModel);
 
-    private OpenNlpFactory() {
-        synchronized (this) {
-            try (InputStream is = getClass().getResourceAsStream(EN_SENT_MODEL_PATH)) {
-                if (is == null) {
-                    throw new IllegalStateException("English sentence model not found at " + EN_SENT_MODEL_PATH);
-                }
-                SentenceModel model = new SentenceModel(is);
-                enSentenceDetector = new SentenceDetectorME(model);
-            } catch (IOException e) {
-                throw new IllegalStateException("Failed to load English sentence model: " + e.getMessage(), e);
-            }
-            // POS model is optional to initialize here; keep lazy if not needed immediately.
-        }
-        synchronized (this) {
-            if (langDetector != null) {
-                return;
-            }
-            String chosenPath = null;
-            for (String candidate : LANG_MODEL_CANDIDATES) {
-                try (InputStream is = getClass().getResourceAsStream(candidate)) {
-                    if (is == null) {
-                        continue;
-                    }
-                    LanguageDetectorModel model = new LanguageDetectorModel(is);
-                    langDetector = new LanguageDetectorME(model);
-                    chosenPath = candidate;
-                    break;
-                } catch (IOException e) {
-                    // try next
-                }
-            }
-            if (langDetector == null) {
-                throw new IllegalStateException("OpenNLP language detector model not found on classpath. Tried: " + LANG_MODEL_CANDIDATES);
-            }
-            try {
-                log.info("OpenNLP language detector initialized (model={})", chosenPath);
-            } catch (Exception ignore) {
-            }
-        }
+    private final ThreadLocal<SentenceDetectorME> enSentenceDetector = ThreadLocal.withInitial(() -> new SentenceDetectorME(enSentenceModel.get()));
+    private final ThreadLocal<POSTaggerME> enPosTagger = ThreadLocal.withInitial(() -> new POSTaggerME(enPosModel.get()));
+    private final ThreadLocal<LanguageDetectorME> langDetector = ThreadLocal.withInitial(() -> new LanguageDetectorME(langModel.get()));
 
+    OpenNlpFactory() {
     }
 
     public static synchronized OpenNlpFactory getInstance() {
@@ -91,12 +66,35 @@ public class OpenNlpFactory {
         return instance;
     }
 
+    /**
+     * The sentence detector of the calling thread.
+     */
     public SentenceDetectorME getEnSentenceDetector() {
-        return enSentenceDetector;
+        return enSentenceDetector.get();
     }
 
+    /**
+     * The POS tagger of the calling thread. The POS model is loaded on the
+     * first call.
+     */
     public POSTaggerME getEnPosTagger() {
-        return enPosTagger;
+        return enPosTagger.get();
+    }
+
+    public boolean isEnPosModelLoaded() {
+        return enPosModel.isLoaded();
+    }
+
+    public void preloadEnSentenceModel() {
+        enSentenceModel.get();
+    }
+
+    public void preloadEnPosModel() {
+        enPosModel.get();
+    }
+
+    public void preloadLanguageModel() {
+        langModel.get();
     }
 
     /**
@@ -107,7 +105,7 @@ public class OpenNlpFactory {
         if (text == null || text.isBlank()) {
             return "und";
         }
-        Language best = langDetector.predictLanguage(text);
+        Language best = langDetector.get().predictLanguage(text);
         if (best == null) {
             return "und";
         }
@@ -117,4 +115,97 @@ public class OpenNlpFactory {
         }
         return code;
     }
+
+    private SentenceModel loadEnSentenceModel() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream(EN_SENT_MODEL_PATH)) {
+            if (is != null) {
+                return new SentenceModel(is);
+            }
+        }
+        // Fall back to the model artifact on the classpath
+        ClassPathModelProvider provider = new DefaultClassPathModelProvider();
+        SentenceModel model = provider.load("en", ModelType.SENTENCE_DETECTOR, SentenceModel.class);
+        if (model == null) {
+            throw new IllegalStateException("English sentence model not found at " + EN_SENT_MODEL_PATH);
+        }
+        return model;
+    }
+
+    private POSModel loadEnPosModel() throws IOException {
+        try (InputStream is = getClass().getResourceAsStream(EN_POS_MODEL_PATH)) {
+            if (is != null) {
+                return new POSModel(is);
+            }
+        }
+        // Fall back to the model artifact on the classpath
+        ClassPathModelProvider provider = new DefaultClassPathModelProvider();
+        POSModel model = provider.load("en", ModelType.POS_GENERIC, POSModel.class);
+        if (model == null) {
+            throw new IllegalStateException("English POS model not found at " + EN_POS_MODEL_PATH);
+        }
+        return model;
+    }
+
+    private LanguageDetectorModel loadLanguageModel() throws IOException {
+        for (String candidate : LANG_MODEL_CANDIDATES) {
+            try (InputStream is = getClass().getResourceAsStream(candidate)) {
+                if (is == null) {
+                    continue;
+                }
+                LanguageDetectorModel model = new LanguageDetectorModel(is);
+                log.info("OpenNLP language detector initialized (model={})", candidate);
+                return model;
+            } catch (IOException e) {
+                // try next
+            }
+        }
+        throw new IllegalStateException("OpenNLP language detector model not found on classpath. Tried: " + LANG_MODEL_CANDIDATES);
+    }
+
+    private interface ModelLoader<M> {
+
+        M load() throws IOException;
+    }
+
+    /**
+     * A model loaded by the first caller; concurrent first callers wait for
+     * that load instead of loading their own copy. A failed load is retried
+     * by the next caller.
+     */
+    private static final class LazyModel<M> implements Supplier<M> {
+
+        private final String name;
+        private final ModelLoader<M> loader;
+        private volatile M model;
+
+        LazyModel(String name, ModelLoader<M> loader) {
+            this.name = name;
+            this.loader = loader;
+        }
+
+        @Override
+        public M get() {
+            M result = model;
+            if (result == null) {
+                synchronized (this) {
+                    result = model;
+                    if (result == null) {
+                        long t0 = System.nanoTime();
+                        try {
+                            result = loader.load();
+                        } catch (IOException e) {
+                            throw new IllegalStateException("Failed to load " + name + " model: " + e.getMessage(), e);
+                        }
+                        model = result;
+                        log.info("OpenNLP {} model loaded in {}ms", name, (System.nanoTime() - t0) / 1_000_000L);
+                    }
+                }
+            }
+            return result;
+        }
+
+        boolean isLoaded() {
+            return model != null;
+        }
+    }
 }
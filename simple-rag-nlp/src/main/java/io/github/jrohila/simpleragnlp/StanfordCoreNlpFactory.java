@@ -7,13 +7,22 @@ package io.github.jrohila.simpleragnlp;
 import io.github.jrohila.simpleragnlp.impl.TermFinderSCNImpl;
 import java.util.Properties;
 
+import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Holds one pipeline pool per {@link CoreNlpProfile}. A StanfordCoreNLP
+ * pipeline must not be shared between concurrent callers, so documents are
+ * annotated through {@link #annotate(Annotation, CoreNlpProfile)}, which
+ * checks a pipeline out of the pool of the profile for the duration of the
+ * call.
  *
  * @author Jukka
  */
@@ -21,51 +30,119 @@ public class StanfordCoreNlpFactory {
 
     private static final Logger log = LoggerFactory.getLogger(StanfordCoreNlpFactory.class);
 
-    private static StanfordCoreNlpFactory instance;
+    private static volatile StanfordCoreNlpFactory instance;
 
-    private volatile StanfordCoreNLP stanfordPipeline;
+    private static volatile int poolSize = Runtime.getRuntime().availableProcessors();
+    private static volatile long waitTimeoutMs = 30000;
 
-    private StanfordCoreNlpFactory() {
-        Properties props = new Properties();
-        props.setProperty("tokenize.language", "en");
+    private final Map<CoreNlpProfile, CoreNlpPipelinePool> pools = new EnumMap<>(CoreNlpProfile.class);
+
+    private final String posModel;
+    private final String depparseModel;
+    private final String parseModel;
 
+    private StanfordCoreNlpFactory() {
         // POS model: prefer cased, fall back to caseless
-        String posModel = firstAvailableResource(
+        this.posModel = firstAvailableResource(
                 "edu/stanford/nlp/models/pos-tagger/english-left3words-distsim.tagger",
                 "edu/stanford/nlp/models/pos-tagger/english-caseless-left3words-distsim.tagger"
         );
-        props.setProperty("pos.model", posModel);
 
         // Prefer UD depparse; otherwise fallback to constituency parse (SR)
-        String depparseModel = firstAvailableResourceOrNull(
+        this.depparseModel = firstAvailableResourceOrNull(
                 "edu/stanford/nlp/models/parser/nndep/english_UD.gz",
                 "edu/stanford/nlp/models/parser/nndep/UD_English.gz",
                 "edu/stanford/nlp/models/parser/nndep/english_SD.gz"
         );
-
         if (depparseModel != null) {
-            props.setProperty("annotators", "tokenize,ssplit,pos,lemma,depparse");
-            props.setProperty("depparse.model", depparseModel);
+            this.parseModel = null;
             log.debug("StanfordCoreNLP: using depparse model={}", depparseModel);
         } else {
             // SR parser models in your JAR
-            String parseModel = firstAvailableResource(
+            this.parseModel = firstAvailableResource(
                     "edu/stanford/nlp/models/srparser/englishSR.ser.gz",
                     "edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz"
             );
-            props.setProperty("annotators", "tokenize,ssplit,pos,lemma,parse");
-            props.setProperty("parse.model", parseModel);
-            // Optional: cap sentence length for speed
-            props.setProperty("parse.maxlen", "100");
             log.debug("StanfordCoreNLP: using parse model={}", parseModel);
         }
 
-        this.stanfordPipeline = new StanfordCoreNLP(props);
-        log.debug("StanfordCoreNLP initialized. pos.model={}", posModel);
+        for (CoreNlpProfile profile : CoreNlpProfile.values()) {
+            Properties props = this.properties(profile);
+            pools.put(profile, new CoreNlpPipelinePool(profile, () -> new StanfordCoreNLP(props), poolSize, waitTimeoutMs));
+        }
+        log.debug("StanfordCoreNLP initialized. pos.model={} poolSize={} waitTimeoutMs={}", posModel, poolSize, waitTimeoutMs);
+    }
+
+    /**
+     * Sets the maximum number of pipelines per profile and how long a caller
+     * waits for a free one. Takes effect only if called before the first
+     * {@link #getInstance()}.
+     */
+    public static void configure(int maxPipelinesPerProfile, long maxWaitMs) {
+        if (instance != null) {
+            log.warn("StanfordCoreNLP pools already created; ignoring poolSize={} waitTimeoutMs={}", maxPipelinesPerProfile, maxWaitMs);
+            return;
+        }
+        if (maxPipelinesPerProfile > 0) {
+            poolSize = maxPipelinesPerProfile;
+        }
+        waitTimeoutMs = maxWaitMs;
+    }
+
+    private Properties properties(CoreNlpProfile profile) {
+        Properties props = new Properties();
+        props.setProperty("tokenize.language", "en");
+        props.setProperty("pos.model", posModel);
+        switch (profile) {
+            case TAGGER ->
+                props.setProperty("annotators", "tokenize,ssplit,pos");
+            case QUERY -> {
+                if (depparseModel != null) {
+                    props.setProperty("annotators", "tokenize,ssplit,pos,depparse");
+                    props.setProperty("depparse.model", depparseModel);
+                } else {
+                    props.setProperty("annotators", "tokenize,ssplit,pos,parse");
+                    props.setProperty("parse.model", parseModel);
+                    props.setProperty("parse.maxlen", "50");
+                }
+            }
+            default -> {
+                if (depparseModel != null) {
+                    props.setProperty("annotators", "tokenize,ssplit,pos,lemma,depparse");
+                    props.setProperty("depparse.model", depparseModel);
+                } else {
+                    props.setProperty("annotators", "tokenize,ssplit,pos,lemma,parse");
+                    props.setProperty("parse.model", parseModel);
+                    // Optional: cap sentence length for speed
+                    props.setProperty("parse.maxlen", "100");
+                }
+            }
+        }
+        return props;
     }
 
-    public StanfordCoreNLP getStanfordPipeline() {
-        return stanfordPipeline;
+    /**
+     * Annotates the document with a pipeline of the given profile, waiting
+     * for one to become free if all are in use.
+     */
+    public void annotate(Annotation doc, CoreNlpProfile profile) {
+        pools.get(profile).annotate(doc);
+    }
+
+    /**
+     * Creates the first pipeline of the profile, which loads its models, so
+     * that the first caller does not have to.
+     */
+    public void preload(CoreNlpProfile profile) {
+        pools.get(profile).warmUp();
+    }
+
+    public List<CoreNlpPipelinePool.Stats> getStats() {
+        List<CoreNlpPipelinePool.Stats> stats = new ArrayList<>();
+        for (CoreNlpPipelinePool pool : pools.values()) {
+            stats.add(pool.getStats());
+        }
+        return stats;
     }
 
     public List<String> extractTerms(String text) {
@@ -73,10 +150,17 @@ public class StanfordCoreNlpFactory {
     }
 
     public static StanfordCoreNlpFactory getInstance() {
-        if (instance == null) {
-            instance = new StanfordCoreNlpFactory();
+        StanfordCoreNlpFactory result = instance;
+        if (result == null) {
+            synchronized (StanfordCoreNlpFactory.class) {
+                result = instance;
+                if (result == null) {
+                    result = new StanfordCoreNlpFactory();
+                    instance = result;
+                }
+            }
         }
-        return instance;
+        return result;
     }
 
     private String firstAvailableResourceOrNull(String... candidates) {
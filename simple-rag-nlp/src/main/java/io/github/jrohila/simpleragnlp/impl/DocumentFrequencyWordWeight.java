@@ -0,0 +1,106 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragnlp.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import opennlp.summarization.preprocess.WordWeight;
+
+/**
+ * IDF weights counted from a set of documents: ln(N / df), where N is the
+ * number of documents and df the number of them containing the word. This
+ * is the scale of the bundled /idf.csv, so the thresholds of
+ * TermFinderStatImpl mean the same with either. A word that occurs in no
+ * document gets the highest weight, ln(N). Words are split and lower-cased
+ * the same way TermFinderStatImpl looks them up.
+ *
+ * @author Jukka
+ */
+public class DocumentFrequencyWordWeight implements WordWeight {
+
+    private final Map<String, Double> idf;
+    private final int documents;
+    private final double unseen;
+
+    private DocumentFrequencyWordWeight(Map<String, Double> idf, int documents) {
+        this.idf = idf;
+        this.documents = documents;
+        this.unseen = documents > 0 ? Math.log(documents) : 1.0;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public double getWordWeight(String token) {
+        Double weight = idf.get(token);
+        return weight == null ? unseen : weight;
+    }
+
+    public int getDocuments() {
+        return documents;
+    }
+
+    public int getWords() {
+        return idf.size();
+    }
+
+    /**
+     * Collects the distinct words of each document. The text of a document
+     * may be added in parts, e.g. one chunk at a time.
+     */
+    public static final class Builder {
+
+        private final Map<String, Set<String>> wordsByDocument = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder add(String documentId, String text) {
+            if (documentId == null || text == null || text.isBlank()) {
+                return this;
+            }
+            Set<String> words = wordsByDocument.computeIfAbsent(documentId, k -> new HashSet<>());
+            int n = text.length();
+            int i = 0;
+            while (i < n) {
+                if (!Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                i = TermFinderStatImpl.wordEnd(text, start);
+                String lower = TermFinderStatImpl.lowerCase(text.substring(start, i));
+                if (lower.endsWith("'s")) {
+                    lower = lower.substring(0, lower.length() - 2);
+                }
+                words.add(lower);
+            }
+            return this;
+        }
+
+        public int documents() {
+            return wordsByDocument.size();
+        }
+
+        public DocumentFrequencyWordWeight build() {
+            Map<String, Integer> df = new HashMap<>();
+            for (Set<String> words : wordsByDocument.values()) {
+                for (String word : words) {
+                    df.merge(word, 1, Integer::sum);
+                }
+            }
+            int n = wordsByDocument.size();
+            Map<String, Double> idf = new HashMap<>(df.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Integer> e : df.entrySet()) {
+                idf.put(e.getKey(), Math.log((double) n / e.getValue()));
+            }
+            return new DocumentFrequencyWordWeight(idf, n);
+        }
+    }
+}
@@ -5,7 +5,6 @@
 package io.github.jrohila.simpleragnlp.impl;
 
 import io.github.jrohila.simpleragnlp.OpenNlpFactory;
-import io.github.jrohila.simpleragnlp.StanfordCoreNlpFactory;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -20,7 +19,7 @@ import org.slf4j.LoggerFactory;
  */
 public class TermFinderONImpl {
 
-    private static final Logger log = LoggerFactory.getLogger(StanfordCoreNlpFactory.class);
+    private static final Logger log = LoggerFactory.getLogger(TermFinderONImpl.class);
 
     public static List<String> extractTerms(String text) {
         List<String> terms = new ArrayList<>();
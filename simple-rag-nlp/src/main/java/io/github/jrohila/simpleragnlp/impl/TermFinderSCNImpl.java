@@ -7,11 +7,11 @@ package io.github.jrohila.simpleragnlp.impl;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.pipeline.Annotation;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraph;
 import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.util.CoreMap;
+import io.github.jrohila.simpleragnlp.CoreNlpProfile;
 import io.github.jrohila.simpleragnlp.StanfordCoreNlpFactory;
 
 import java.util.ArrayList;
@@ -29,18 +29,25 @@ public class TermFinderSCNImpl {
     private static final Logger log = LoggerFactory.getLogger(TermFinderSCNImpl.class);
 
     public static List<String> extractTerms(String text) {
+        return extractTerms(text, CoreNlpProfile.QUERY);
+    }
+
+    /**
+     * Noun phrases of the text. With a profile that has no dependency parser
+     * (TAGGER) the phrases are runs of adjectives and nouns ending in a noun.
+     */
+    public static List<String> extractTerms(String text, CoreNlpProfile profile) {
         List<String> terms = new ArrayList<>();
         try {
             long t0 = System.nanoTime();
-            log.debug("StanfordCoreNLP term extraction: inputLen={}", text == null ? 0 : text.length());
+            log.debug("StanfordCoreNLP term extraction: inputLen={} profile={}", text == null ? 0 : text.length(), profile);
 
             if (text == null || text.isBlank()) {
                 return terms;
             }
 
-            StanfordCoreNLP pipeline = StanfordCoreNlpFactory.getInstance().getStanfordPipeline();
             Annotation doc = new Annotation(text);
-            pipeline.annotate(doc);
+            StanfordCoreNlpFactory.getInstance().annotate(doc, profile);
 
             LinkedHashSet<String> unique = new LinkedHashSet<>();
 
@@ -50,7 +57,11 @@ public class TermFinderSCNImpl {
                 for (CoreMap sentence : sentences) {
                     SemanticGraph graph = getDependencyGraph(sentence);
                     List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
-                    if (graph == null || tokens == null || tokens.isEmpty()) {
+                    if (tokens == null || tokens.isEmpty()) {
+                        continue;
+                    }
+                    if (graph == null) {
+                        addTaggedPhrases(tokens, unique);
                         continue;
                     }
 
@@ -107,7 +118,7 @@ public class TermFinderSCNImpl {
             }
 
             long tookMs = (System.nanoTime() - t0) / 1_000_000L;
-            log.info("StanfordCoreNLP term extraction: sentences={} terms={} took={}ms", sentenceCount, unique.size(), tookMs);
+            log.info("StanfordCoreNLP term extraction: profile={} sentences={} terms={} took={}ms", profile, sentenceCount, unique.size(), tookMs);
             log.debug("StanfordCoreNLP terms={}", unique);
 
             terms.addAll(unique);
@@ -117,6 +128,41 @@ public class TermFinderSCNImpl {
         return terms;
     }
 
+    // Without a dependency graph: adjective/noun runs ending in a noun, then the nouns on their own
+    private static void addTaggedPhrases(List<CoreLabel> tokens, LinkedHashSet<String> unique) {
+        StringBuilder phrase = new StringBuilder();
+        StringBuilder pending = new StringBuilder();
+        for (CoreLabel tok : tokens) {
+            String pos = tok.get(CoreAnnotations.PartOfSpeechAnnotation.class);
+            String w = tok.get(CoreAnnotations.TextAnnotation.class);
+            boolean noun = isNoun(pos);
+            if (noun || isAdjective(pos)) {
+                if (pending.length() > 0) {
+                    pending.append(' ');
+                }
+                pending.append(w);
+                if (noun) {
+                    phrase.setLength(0);
+                    phrase.append(pending);
+                }
+            } else {
+                if (phrase.length() > 0) {
+                    unique.add(phrase.toString());
+                }
+                phrase.setLength(0);
+                pending.setLength(0);
+            }
+        }
+        if (phrase.length() > 0) {
+            unique.add(phrase.toString());
+        }
+        for (CoreLabel tok : tokens) {
+            if (isNoun(tok.get(CoreAnnotations.PartOfSpeechAnnotation.class))) {
+                unique.add(tok.get(CoreAnnotations.TextAnnotation.class));
+            }
+        }
+    }
+
     // Prefer UD Enhanced++ if present; else use collapsed CC-processed dependencies from constituency parse
     private static SemanticGraph getDependencyGraph(CoreMap sentence) {
         SemanticGraph g = sentence.get(SemanticGraphCoreAnnotations.EnhancedPlusPlusDependenciesAnnotation.class);
@@ -210,4 +256,12 @@ public class TermFinderSCNImpl {
         }
         return tag.equals("NOUN") || tag.equals("PROPN") || tag.startsWith("NN");
     }
+
+    private static boolean isAdjective(String tag) {
+        // Support both UD (ADJ) and PTB (JJ, JJR, JJS)
+        if (tag == null) {
+            return false;
+        }
+        return tag.equals("ADJ") || tag.startsWith("JJ");
+    }
 }
@@ -0,0 +1,221 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragnlp.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import opennlp.summarization.preprocess.IDFWordWeight;
+import opennlp.summarization.preprocess.StopWords;
+import opennlp.summarization.preprocess.WordWeight;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Term extraction without a tagger or parser. The text is tokenized and cut
+ * into runs of content words at stop words and punctuation. Every run of up
+ * to three words is a phrase candidate; longer runs give their bigrams. A
+ * candidate is kept if its words are, on average, specific enough according
+ * to the IDF weights, and words that occur in no kept phrase are added on
+ * their own under the same rule. Terms are returned in text order, phrases
+ * before single words.
+ *
+ * The weights are given to the constructor, typically a
+ * DocumentFrequencyWordWeight counted from the indexed documents, so words
+ * that are common in this collection count as generic. The static
+ * extractTerms falls back to the generic table bundled as /idf.csv (the one
+ * the summarizer uses).
+ *
+ * @author Jukka
+ */
+public class TermFinderStatImpl {
+
+    private static final Logger log = LoggerFactory.getLogger(TermFinderStatImpl.class);
+
+    private static final int MAX_PHRASE_WORDS = 3;
+    private static final double MIN_IDF = 0.15;
+
+    private static final class Defaults {
+
+        private static final TermFinderStatImpl INSTANCE = new TermFinderStatImpl(new StopWords(), IDFWordWeight.getInstance("/idf.csv"));
+    }
+
+    private final StopWords stopWords;
+    private final WordWeight wordWeight;
+
+    public TermFinderStatImpl(StopWords stopWords, WordWeight wordWeight) {
+        this.stopWords = stopWords;
+        this.wordWeight = wordWeight;
+    }
+
+    public static List<String> extractTerms(String text) {
+        return Defaults.INSTANCE.extract(text);
+    }
+
+    public List<String> extract(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        long t0 = System.nanoTime();
+
+        List<List<Token>> runs = this.contentRuns(text);
+
+        // Candidate n-grams with their frequency in the text
+        Map<String, Candidate> phrases = new LinkedHashMap<>();
+        Map<String, Candidate> words = new LinkedHashMap<>();
+        for (List<Token> run : runs) {
+            if (run.size() >= 2 && run.size() <= MAX_PHRASE_WORDS) {
+                this.count(phrases, run);
+            } else if (run.size() > MAX_PHRASE_WORDS) {
+                for (int i = 0; i + 2 <= run.size(); i++) {
+                    this.count(phrases, run.subList(i, i + 2));
+                }
+            }
+            for (Token token : run) {
+                this.count(words, List.of(token));
+            }
+        }
+
+        // A candidate repeated in the text is kept even if generic
+        Set<String> covered = new HashSet<>();
+        for (Candidate c : phrases.values()) {
+            if (c.meanIdf() >= MIN_IDF || c.count > 1) {
+                terms.add(c.surface);
+                covered.addAll(Arrays.asList(c.key.split(" ")));
+            }
+        }
+        for (Candidate c : words.values()) {
+            if (!covered.contains(c.key) && (c.meanIdf() >= MIN_IDF || c.count > 1)) {
+                terms.add(c.surface);
+            }
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Statistical term extraction: runs={} terms={} took={}us", runs.size(), terms.size(), (System.nanoTime() - t0) / 1000L);
+        }
+        return terms;
+    }
+
+    private void count(Map<String, Candidate> target, List<Token> tokens) {
+        StringBuilder key = new StringBuilder();
+        StringBuilder surface = new StringBuilder();
+        double idf = 0;
+        for (Token t : tokens) {
+            if (key.length() > 0) {
+                key.append(' ');
+                surface.append(' ');
+            }
+            key.append(t.lower);
+            surface.append(t.text);
+            idf += t.idf;
+        }
+        Candidate c = target.get(key.toString());
+        if (c == null) {
+            target.put(key.toString(), new Candidate(key.toString(), surface.toString(), idf / tokens.size()));
+        } else {
+            c.count++;
+        }
+    }
+
+    /**
+     * Runs of consecutive content words. Stop words, single characters, a
+     * possessive and any punctuation other than an apostrophe, hyphen or dot
+     * inside a word end a run.
+     */
+    private List<List<Token>> contentRuns(String text) {
+        List<List<Token>> runs = new ArrayList<>();
+        List<Token> run = new ArrayList<>();
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char ch = text.charAt(i);
+            if (!Character.isLetterOrDigit(ch)) {
+                if (!Character.isWhitespace(ch) && !run.isEmpty()) {
+                    runs.add(run);
+                    run = new ArrayList<>();
+                }
+                i++;
+                continue;
+            }
+            int start = i;
+            i = wordEnd(text, start);
+            String word = text.substring(start, i);
+            String lower = lowerCase(word);
+            boolean possessive = lower.endsWith("'s");
+            if (possessive) {
+                word = word.substring(0, word.length() - 2);
+                lower = lower.substring(0, lower.length() - 2);
+            }
+            boolean stopWord = stopWords.isStopWord(lower);
+            if (!stopWord) {
+                run.add(new Token(word, lower, wordWeight.getWordWeight(lower)));
+            }
+            // The possessor and the possessed are separate terms
+            if ((stopWord || possessive) && !run.isEmpty()) {
+                runs.add(run);
+                run = new ArrayList<>();
+            }
+        }
+        if (!run.isEmpty()) {
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    /**
+     * End of the word starting at start: letters and digits, joined by an
+     * apostrophe, hyphen or dot when a letter or digit follows it.
+     */
+    static int wordEnd(String text, int start) {
+        int n = text.length();
+        int i = start;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                i++;
+            } else if ((c == '\'' || c == '’' || c == '-' || c == '.') && i + 1 < n && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * The form a word is looked up by in the stop words and word weights.
+     */
+    static String lowerCase(String word) {
+        return word.toLowerCase(Locale.ROOT).replace('’', '\'');
+    }
+
+    private record Token(String text, String lower, double idf) {
+
+    }
+
+    private static final class Candidate {
+
+        private final String key;
+        private final String surface;
+        private final double meanIdf;
+        private int count = 1;
+
+        private Candidate(String key, String surface, double meanIdf) {
+            this.key = key;
+            this.surface = surface;
+            this.meanIdf = meanIdf;
+        }
+
+        private double meanIdf() {
+            return meanIdf;
+        }
+    }
+}
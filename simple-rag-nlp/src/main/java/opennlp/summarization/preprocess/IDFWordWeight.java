@@ -43,7 +43,7 @@ public class IDFWordWeight implements WordWeight {
     }
   }
 
-  public static IDFWordWeight getInstance(String fileName) {
+  public static synchronized IDFWordWeight getInstance(String fileName) {
     if (instance == null)
       instance = new IDFWordWeight(fileName);
     return instance;
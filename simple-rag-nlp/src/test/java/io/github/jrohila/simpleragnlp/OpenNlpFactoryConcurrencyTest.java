@@ -0,0 +1,139 @@
+package io.github.jrohila.simpleragnlp;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.jrohila.simpleragnlp.impl.TermFinderONImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import opennlp.tools.postag.POSTaggerME;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.tokenize.SimpleTokenizer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the OpenNLP models from many threads at once and checks that every
+ * result equals the single-threaded one.
+ */
+public class OpenNlpFactoryConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    private static final List<String> TEXTS = List.of(
+            "What kind of career an ENTP person should have? Dr. Smith wrote about it in 2019.",
+            "The quick brown fox jumps over the lazy dog. It was not amused.",
+            "OpenSearch stores the chunk embeddings. Hybrid search combines BM25 and vectors!",
+            "Mr. Brown arrived at 5 p.m. on Monday. The meeting had already ended.",
+            "Language models generate text one token at a time. Streaming sends each token as it arrives."
+    );
+
+    @Test
+    public void posModelIsLoadedOnFirstUse() {
+        OpenNlpFactory factory = new OpenNlpFactory();
+        factory.getEnSentenceDetector();
+        assertFalse(factory.isEnPosModelLoaded());
+        factory.getEnPosTagger();
+        assertTrue(factory.isEnPosModelLoaded());
+    }
+
+    @Test
+    public void eachThreadGetsItsOwnInstances() throws Exception {
+        OpenNlpFactory factory = new OpenNlpFactory();
+        SentenceDetectorME detector = factory.getEnSentenceDetector();
+        POSTaggerME tagger = factory.getEnPosTagger();
+        assertSame(detector, factory.getEnSentenceDetector());
+        assertSame(tagger, factory.getEnPosTagger());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(detector, executor.submit(factory::getEnSentenceDetector).get());
+            assertNotSame(tagger, executor.submit(factory::getEnPosTagger).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentSentenceDetectionMatchesSequential() throws Exception {
+        OpenNlpFactory factory = new OpenNlpFactory();
+        List<String[]> expected = new ArrayList<>();
+        for (String text : TEXTS) {
+            expected.add(factory.getEnSentenceDetector().sentDetect(text));
+        }
+        runConcurrently(() -> {
+            for (int i = 0; i < TEXTS.size(); i++) {
+                assertArrayEquals(expected.get(i), factory.getEnSentenceDetector().sentDetect(TEXTS.get(i)));
+            }
+        });
+    }
+
+    @Test
+    public void concurrentPosTaggingMatchesSequential() throws Exception {
+        OpenNlpFactory factory = new OpenNlpFactory();
+        List<String[]> tokens = new ArrayList<>();
+        List<String[]> expectedTags = new ArrayList<>();
+        List<double[]> expectedProbs = new ArrayList<>();
+        for (String text : TEXTS) {
+            String[] t = SimpleTokenizer.INSTANCE.tokenize(text);
+            POSTaggerME tagger = factory.getEnPosTagger();
+            tokens.add(t);
+            expectedTags.add(tagger.tag(t));
+            expectedProbs.add(tagger.probs());
+        }
+        runConcurrently(() -> {
+            for (int i = 0; i < TEXTS.size(); i++) {
+                POSTaggerME tagger = factory.getEnPosTagger();
+                assertArrayEquals(expectedTags.get(i), tagger.tag(tokens.get(i)));
+                // probs() refers to the last tag() call, which another thread must not overwrite
+                assertArrayEquals(expectedProbs.get(i), tagger.probs());
+            }
+        });
+    }
+
+    @Test
+    public void concurrentTermExtractionMatchesSequential() throws Exception {
+        List<List<String>> expected = new ArrayList<>();
+        for (String text : TEXTS) {
+            expected.add(TermFinderONImpl.extractTerms(text));
+        }
+        assertTrue(expected.get(0).contains("career"));
+        runConcurrently(() -> {
+            for (int i = 0; i < TEXTS.size(); i++) {
+                assertEquals(expected.get(i), TermFinderONImpl.extractTerms(TEXTS.get(i)));
+            }
+        });
+    }
+
+    private static void runConcurrently(Runnable round) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < ROUNDS; r++) {
+                        round.run();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                // Rethrows assertion failures from the worker threads
+                f.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.jrohila.simpleragnlp.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import opennlp.summarization.preprocess.StopWords;
+import org.junit.jupiter.api.Test;
+
+public class DocumentFrequencyWordWeightTest {
+
+    private static final double EPSILON = 1e-9;
+
+    private final DocumentFrequencyWordWeight weights = DocumentFrequencyWordWeight.builder()
+            .add("doc-1", "Acme onboarding guide for new employees.")
+            .add("doc-1", "Acme's payroll runs monthly.")
+            .add("doc-2", "Acme travel policy: book flights early.")
+            .add("doc-3", "ACME security policy for remote access.")
+            .add("doc-4", "Acme benefits and pension plan overview.")
+            .build();
+
+    @Test
+    public void weightIsLogOfDocumentsOverDocumentFrequency() {
+        assertEquals(4, weights.getDocuments());
+        assertEquals(0.0, weights.getWordWeight("acme"), EPSILON);
+        assertEquals(Math.log(2), weights.getWordWeight("policy"), EPSILON);
+        assertEquals(Math.log(4), weights.getWordWeight("payroll"), EPSILON);
+    }
+
+    @Test
+    public void partsOfADocumentCountOnceAndUnseenWordsGetTheHighestWeight() {
+        // doc-1 mentions Acme twice, once possessive, but is one document
+        assertEquals(0.0, weights.getWordWeight("acme"), EPSILON);
+        assertEquals(Math.log(4), weights.getWordWeight("kubernetes"), EPSILON);
+    }
+
+    @Test
+    public void wordCommonInTheCollectionIsGeneric() {
+        TermFinderStatImpl finder = new TermFinderStatImpl(new StopWords(), weights);
+        assertEquals(List.of("payroll"), finder.extract("Acme, payroll?"));
+    }
+}
@@ -0,0 +1,155 @@
+package io.github.jrohila.simpleragnlp.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compares the latency of the three term extraction engines on short
+ * queries and how much of the terms of the parser based engines the
+ * statistical one finds. Not a unit test; run the main method with the
+ * test classpath, optionally with the number of rounds as the argument.
+ */
+public class TermFinderBenchmark {
+
+    private static final List<String> QUERIES = List.of(
+            "What kind of career an ENTP person should have?",
+            "How do I configure hybrid search with BM25 and vector embeddings in OpenSearch?",
+            "Tell me about Apollo 11's lunar landing in 1969.",
+            "best practices for java garbage collection tuning",
+            "Which documents mention the quarterly revenue forecast?",
+            "Summarize the security policy for remote access",
+            "What is the difference between supervised and unsupervised learning?",
+            "Who approved the budget for the new data center?",
+            "Explain the side effects of ibuprofen for elderly patients",
+            "How does the chunking service split long PDF documents?",
+            "List the open issues in the payment gateway integration",
+            "What are the opening hours of the city library on Sundays?"
+    );
+
+    private record Engine(String name, Function<String, List<String>> extractor) {
+    }
+
+    private record Result(String name, long[] nanos, List<List<String>> terms) {
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        List<Engine> engines = List.of(
+                new Engine("STATISTICAL", TermFinderStatImpl::extractTerms),
+                new Engine("OPEN_NLP", TermFinderONImpl::extractTerms),
+                new Engine("STANFORD_CORE_NLP", TermFinderSCNImpl::extractTerms));
+
+        List<Result> results = new ArrayList<>();
+        for (Engine engine : engines) {
+            Result result = run(engine, rounds);
+            if (result == null) {
+                System.out.printf("%-18s unavailable (no terms for any query, models missing?)%n", engine.name());
+            } else {
+                results.add(result);
+            }
+        }
+
+        System.out.printf("%n%-18s %10s %10s %10s %10s%n", "engine", "mean us", "p50 us", "p95 us", "max us");
+        for (Result r : results) {
+            long[] sorted = r.nanos().clone();
+            Arrays.sort(sorted);
+            System.out.printf("%-18s %10.1f %10.1f %10.1f %10.1f%n", r.name(),
+                    Arrays.stream(sorted).average().orElse(0) / 1000.0,
+                    sorted[sorted.length / 2] / 1000.0,
+                    sorted[(int) (sorted.length * 0.95)] / 1000.0,
+                    sorted[sorted.length - 1] / 1000.0);
+        }
+
+        Result statistical = results.get(0);
+        System.out.printf("%n%-18s %12s %12s%n", "vs STATISTICAL", "jaccard", "word recall");
+        for (Result r : results.subList(1, results.size())) {
+            double jaccard = 0;
+            double recall = 0;
+            for (int q = 0; q < QUERIES.size(); q++) {
+                jaccard += jaccard(normalize(statistical.terms().get(q)), normalize(r.terms().get(q)));
+                recall += recall(words(statistical.terms().get(q)), words(r.terms().get(q)));
+            }
+            System.out.printf("%-18s %12.2f %12.2f%n", r.name(), jaccard / QUERIES.size(), recall / QUERIES.size());
+        }
+
+        System.out.println();
+        for (int q = 0; q < QUERIES.size(); q++) {
+            System.out.println(QUERIES.get(q));
+            for (Result r : results) {
+                System.out.printf("  %-18s %s%n", r.name(), r.terms().get(q));
+            }
+        }
+    }
+
+    private static Result run(Engine engine, int rounds) {
+        // The first calls load models and warm up the JIT
+        List<List<String>> terms = new ArrayList<>();
+        boolean any = false;
+        for (String q : QUERIES) {
+            List<String> t = engine.extractor().apply(q);
+            terms.add(t);
+            any |= !t.isEmpty();
+        }
+        if (!any) {
+            return null;
+        }
+        int warmup = Math.max(1, rounds / 10);
+        for (int i = 0; i < warmup; i++) {
+            for (String q : QUERIES) {
+                engine.extractor().apply(q);
+            }
+        }
+        long[] nanos = new long[rounds * QUERIES.size()];
+        int n = 0;
+        for (int i = 0; i < rounds; i++) {
+            for (String q : QUERIES) {
+                long t0 = System.nanoTime();
+                engine.extractor().apply(q);
+                nanos[n++] = System.nanoTime() - t0;
+            }
+        }
+        return new Result(engine.name(), nanos, terms);
+    }
+
+    private static Set<String> normalize(List<String> terms) {
+        Set<String> out = new HashSet<>();
+        for (String t : terms) {
+            out.add(t.toLowerCase(Locale.ROOT));
+        }
+        return out;
+    }
+
+    private static Set<String> words(List<String> terms) {
+        Set<String> out = new HashSet<>();
+        for (String t : terms) {
+            out.addAll(Arrays.asList(t.toLowerCase(Locale.ROOT).split("\\s+")));
+        }
+        return out;
+    }
+
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        Set<String> intersection = new HashSet<>(a);
+        intersection.retainAll(b);
+        return (double) intersection.size() / union.size();
+    }
+
+    // Share of the reference engine's words that the statistical engine also returned
+    private static double recall(Set<String> found, Set<String> reference) {
+        if (reference.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> hit = new HashSet<>(reference);
+        hit.retainAll(found);
+        return (double) hit.size() / reference.size();
+    }
+}
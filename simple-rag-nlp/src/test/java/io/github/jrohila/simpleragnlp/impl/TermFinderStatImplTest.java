@@ -0,0 +1,48 @@
+package io.github.jrohila.simpleragnlp.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import opennlp.summarization.preprocess.StopWords;
+import org.junit.jupiter.api.Test;
+
+public class TermFinderStatImplTest {
+
+    // Generic words get a low IDF, unknown words the default 1.0
+    private static final Map<String, Double> IDF = Map.of("kind", 0.11, "person", 0.11, "thing", 0.05);
+
+    private final TermFinderStatImpl finder = new TermFinderStatImpl(new StopWords(), w -> IDF.getOrDefault(w, 1.0));
+
+    @Test
+    public void phrasesEndAtStopWordsAndPunctuation() {
+        assertEquals(List.of("hybrid search", "vector embeddings", "OpenSearch"),
+                finder.extract("What is hybrid search, and what are vector embeddings in OpenSearch?"));
+    }
+
+    @Test
+    public void genericWordsAreDroppedUnlessInAPhrase() {
+        assertEquals(List.of("ENTP person", "career"),
+                finder.extract("What kind of career an ENTP person should have?"));
+    }
+
+    @Test
+    public void repeatedWordIsKeptEvenIfGeneric() {
+        assertEquals(List.of("thing"), finder.extract("The thing is, a thing."));
+    }
+
+    @Test
+    public void possessiveSplitsPhraseAndLongRunsGiveBigrams() {
+        assertEquals(List.of("Apollo 11", "lunar landing", "1969"), finder.extract("Apollo 11's lunar landing in 1969"));
+        assertEquals(List.of("java garbage", "garbage collection", "collection tuning"),
+                finder.extract("java garbage collection tuning"));
+    }
+
+    @Test
+    public void blankOrStopWordsOnlyGiveNoTerms() {
+        assertTrue(finder.extract(null).isEmpty());
+        assertTrue(finder.extract("  ").isEmpty());
+        assertTrue(finder.extract("what is it?").isEmpty());
+    }
+}
@@ -16,12 +16,16 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.util.StreamUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
@@ -45,6 +49,8 @@ public class DoclingAsyncClient {
     private final int readTimeoutMs;
     private final int resultReadTimeoutMs;
     private final String statusPathTemplate;
+    private final int logMaxPayloadBytes;
+    private final RestTemplate streamingTemplate;
 
     public DoclingAsyncClient(
             @Value("${docling-serve.url}") String doclingBaseUrl,
@@ -52,7 +58,8 @@ public class DoclingAsyncClient {
         @Value("${docling.async.status-path-template:/v1/status/poll/{id}}") String statusPathTemplate,
             @Value("${docling.timeout.connect:10000}") int connectTimeoutMs,
             @Value("${docling.timeout.read:600000}") int readTimeoutMs,
-            @Value("${docling.result.timeout.read:15000}") int resultReadTimeoutMs
+            @Value("${docling.result.timeout.read:15000}") int resultReadTimeoutMs,
+            @Value("${docling.log.max-payload-bytes:65536}") int logMaxPayloadBytes
     ) {
         this.doclingBaseUrl = doclingBaseUrl;
         this.asyncConvertPath = asyncConvertPath;
@@ -60,7 +67,9 @@ public class DoclingAsyncClient {
         this.connectTimeoutMs = connectTimeoutMs;
         this.readTimeoutMs = readTimeoutMs;
         this.resultReadTimeoutMs = resultReadTimeoutMs;
+        this.logMaxPayloadBytes = logMaxPayloadBytes;
         this.restTemplate = createRestTemplate();
+        this.streamingTemplate = createStreamingRestTemplate();
         this.objectMapper = new ObjectMapper().disable(SerializationFeature.FAIL_ON_EMPTY_BEANS);
     }
 
@@ -76,6 +85,11 @@ public class DoclingAsyncClient {
         RestTemplate template = new RestTemplate();
         template.setRequestFactory(factory);
         template.getInterceptors().add((request, body, execution) -> {
+            if (body.length > logMaxPayloadBytes || !logger.isDebugEnabled()) {
+                // Skip copying and re-parsing large payloads just for logging
+                logger.debug("Docling(ASYNC) HTTP payload: {}B", body.length);
+                return execution.execute(request, body);
+            }
             try {
                 String bodyStr = new String(body, StandardCharsets.UTF_8);
                 try {
@@ -99,6 +113,18 @@ public class DoclingAsyncClient {
         return template;
     }
 
+    /**
+     * RestTemplate without request buffering or body logging, used for
+     * requests whose body is streamed (large base64 document uploads).
+     */
+    private RestTemplate createStreamingRestTemplate() {
+        org.springframework.http.client.SimpleClientHttpRequestFactory factory =
+                new org.springframework.http.client.SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(connectTimeoutMs);
+        factory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(factory);
+    }
+
     private RestTemplate createRestTemplate(int connectTimeout, int readTimeout) {
         org.springframework.http.client.SimpleClientHttpRequestFactory baseFactory =
                 new org.springframework.http.client.SimpleClientHttpRequestFactory();
@@ -308,6 +334,77 @@ public class DoclingAsyncClient {
         return executeAsyncStart("/v1/chunk/hybrid/source/async", req);
     }
 
+    /**
+     * Start async Hybrid chunking from a stream. The request JSON is written
+     * directly to the HTTP connection and the document is base64-encoded on
+     * the fly, so neither the raw bytes nor the base64 string are held in
+     * memory. The stream is not closed.
+     */
+    public StartOperationResult hybridChunkFromStream(
+            String filename,
+            InputStream content,
+            DoclingChunkRequest.HybridChunkerOptions hybridOptions,
+            Boolean includeConvertedDoc,
+            String targetKind,
+            DoclingConversionRequest.Options convertOptionsOverride
+    ) {
+        // Serialize the request with a placeholder and stream the document in its place
+        String placeholder = "@@base64-" + java.util.UUID.randomUUID() + "@@";
+        DoclingChunkRequest req = new DoclingChunkRequest();
+        DoclingConversionRequest.SourceInput src = new DoclingConversionRequest.SourceInput();
+        src.setKind("file");
+        src.setFilename(filename);
+        src.setBase64String(placeholder);
+        req.setSources(List.of(src));
+        if (convertOptionsOverride != null) req.setConvertOptions(convertOptionsOverride);
+        req.setChunkingOptions(hybridOptions);
+        if (includeConvertedDoc != null) req.setIncludeConvertedDoc(includeConvertedDoc);
+        if (targetKind != null && !targetKind.isBlank()) {
+            DoclingChunkRequest.Target t = new DoclingChunkRequest.Target();
+            t.setKind(targetKind);
+            req.setTarget(t);
+        }
+
+        String url = doclingBaseUrl + "/v1/chunk/hybrid/source/async";
+        try {
+            String json = objectMapper.writeValueAsString(req);
+            int at = json.indexOf(placeholder);
+            byte[] prefix = json.substring(0, at).getBytes(StandardCharsets.UTF_8);
+            byte[] suffix = json.substring(at + placeholder.length()).getBytes(StandardCharsets.UTF_8);
+
+            logger.info("Docling ASYNC start POST {} (streamed) filename={}", url, filename);
+            return streamingTemplate.execute(url, HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                request.getHeaders().set("Accept", "application/json");
+                if (request instanceof StreamingHttpOutputMessage streaming) {
+                    streaming.setBody(out -> writeBase64Body(out, prefix, content, suffix));
+                } else {
+                    writeBase64Body(request.getBody(), prefix, content, suffix);
+                }
+            }, response -> {
+                String body = StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+                return parseStartResponse(response.getStatusCode().value(), response.getHeaders().getLocation(), body);
+            });
+        } catch (HttpClientErrorException e) {
+            String body = e.getResponseBodyAsString();
+            logger.error("Docling ASYNC returned {} with body: {}", e.getStatusCode(), body);
+            throw new RuntimeException("Docling async 4xx error: " + e.getStatusCode() + " body=" + body, e);
+        } catch (Exception e) {
+            logger.error("Failed to start async chunking using Docling service", e);
+            throw new RuntimeException("Async chunk start failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeBase64Body(OutputStream out, byte[] prefix, InputStream content, byte[] suffix) throws IOException {
+        out.write(prefix);
+        // Closing the encoder writes the final padding but must not close the connection stream
+        try (OutputStream b64 = Base64.getEncoder().wrap(StreamUtils.nonClosing(out))) {
+            content.transferTo(b64);
+        }
+        out.write(suffix);
+        out.flush();
+    }
+
     /**
      * Start async Hierarchical chunking from URL.
      */
@@ -374,11 +471,8 @@ public class DoclingAsyncClient {
 
             HttpEntity<Object> entity = new HttpEntity<>(payload, headers);
 
-            // Minimal redacted logging
-            try {
-                String json = objectMapper.writeValueAsString(payload);
-                logger.info("Docling ASYNC start POST {} payload_size={}B", url, json.length());
-            } catch (Exception ignore) {}
+            // Minimal logging; the payload is not serialized a second time just to measure it
+            logger.info("Docling ASYNC start POST {}", url);
 
             ResponseEntity<String> response = restTemplate.exchange(
                     url,
@@ -390,22 +484,7 @@ public class DoclingAsyncClient {
             int status = response.getStatusCode().value();
             URI loc = Optional.ofNullable(response.getHeaders().getLocation()).orElse(null);
             String body = Optional.ofNullable(response.getBody()).orElse("");
-
-            String opId = null;
-            try {
-                JsonNode root = objectMapper.readTree(body);
-                if (root.hasNonNull("task_id")) opId = root.get("task_id").asText();
-                else if (root.hasNonNull("id")) opId = root.get("id").asText();
-                else if (root.hasNonNull("operation_id")) opId = root.get("operation_id").asText();
-            } catch (Exception ignore) {}
-
-            String pollUrl = (loc != null ? loc.toString() : null);
-            if ((pollUrl == null || pollUrl.isBlank()) && opId != null && !opId.isBlank()) {
-                pollUrl = doclingBaseUrl + statusPathTemplate.replace("{id}", opId);
-            }
-
-            logger.info("Docling ASYNC chunk started: status={} location={} operationId={} bodyLen={}", status, pollUrl, opId, body.length());
-            return new StartOperationResult(opId, pollUrl, status, body);
+            return parseStartResponse(status, loc, body);
         } catch (HttpClientErrorException e) {
             String body = e.getResponseBodyAsString();
             logger.error("Docling ASYNC returned {} with body: {}", e.getStatusCode(), body);
@@ -416,6 +495,24 @@ public class DoclingAsyncClient {
         }
     }
 
+    private StartOperationResult parseStartResponse(int status, URI loc, String body) {
+        String opId = null;
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            if (root.hasNonNull("task_id")) opId = root.get("task_id").asText();
+            else if (root.hasNonNull("id")) opId = root.get("id").asText();
+            else if (root.hasNonNull("operation_id")) opId = root.get("operation_id").asText();
+        } catch (Exception ignore) {}
+
+        String pollUrl = (loc != null ? loc.toString() : null);
+        if ((pollUrl == null || pollUrl.isBlank()) && opId != null && !opId.isBlank()) {
+            pollUrl = doclingBaseUrl + statusPathTemplate.replace("{id}", opId);
+        }
+
+        logger.info("Docling ASYNC chunk started: status={} location={} operationId={} bodyLen={}", status, pollUrl, opId, body.length());
+        return new StartOperationResult(opId, pollUrl, status, body);
+    }
+
     /**
      * Handle returned when starting an async operation.
      */
@@ -499,8 +596,20 @@ public class DoclingAsyncClient {
      * GET operation status by operation id using statusPathTemplate.
      */
     public OperationStatus getStatusById(String operationId) {
+        return getStatusById(operationId, 0);
+    }
+
+    /**
+     * GET operation status by operation id, asking Docling to long-poll for up
+     * to waitSeconds before answering (the "wait" query parameter of
+     * /v1/status/poll/{id}). A value of 0 returns immediately.
+     */
+    public OperationStatus getStatusById(String operationId, int waitSeconds) {
         String path = statusPathTemplate.replace("{id}", operationId);
         String url = doclingBaseUrl + path;
+        if (waitSeconds > 0) {
+            url = url + (url.contains("?") ? "&" : "?") + "wait=" + waitSeconds;
+        }
         return getStatusByAbsoluteUrl(url);
     }
 
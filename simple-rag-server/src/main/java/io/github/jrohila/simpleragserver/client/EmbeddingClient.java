@@ -18,17 +18,17 @@ public interface EmbeddingClient {
     float[] embed(String text);
     
     /**
-     * Generate embeddings for the given text.
-     * Convenience method that returns embeddings as a List of Float objects.
+     * Generate embeddings for several texts.
+     * Implementations should override this to use the provider's batch API,
+     * the default falls back to one embed call per text.
      * 
-     * @param text The text to generate embeddings for
-     * @return Embeddings as a List of Float
+     * @param texts The texts to generate embeddings for
+     * @return Embeddings in the same order as the input texts
      */
-    default List<Float> embedAsList(String text) {
-        float[] embeddings = embed(text);
-        List<Float> result = new ArrayList<>(embeddings.length);
-        for (float value : embeddings) {
-            result.add(value);
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> result = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            result.add(embed(text));
         }
         return result;
     }
@@ -37,6 +37,11 @@ public interface EmbeddingClient {
      * Get the provider name (e.g., "ollama", "openai", "gemini")
      */
     String getProviderName();
+
+    /**
+     * Get the name of the embedding model used by this client
+     */
+    String getModelName();
     
     /**
      * Get the embedding dimension size for this model
@@ -2,6 +2,7 @@ package io.github.jrohila.simpleragserver.client;
 
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.response.StreamingHandle;
 import dev.langchain4j.model.output.Response;
 import java.util.List;
 import java.util.function.Consumer;
@@ -40,8 +41,9 @@ public interface LlmClient {
      * @param streamHandler Consumer that receives each response chunk
      * @param onComplete Runnable called when streaming completes successfully
      * @param onError Consumer called if an error occurs during streaming
+     * @return Handle that aborts the stream; no callbacks are invoked after cancel
      */
-    void streamChat(List<ChatMessage> messages, LlmRequestOptions options, 
+    StreamingHandle streamChat(List<ChatMessage> messages, LlmRequestOptions options, 
                     Consumer<String> streamHandler, Runnable onComplete, Consumer<Throwable> onError);
     
     /**
@@ -52,10 +54,11 @@ public interface LlmClient {
      * @param streamHandler Consumer that receives each response chunk
      * @param onComplete Runnable called when streaming completes successfully
      * @param onError Consumer called if an error occurs during streaming
+     * @return Handle that aborts the stream; no callbacks are invoked after cancel
      */
-    default void streamChat(String userMessage, LlmRequestOptions options,
+    default StreamingHandle streamChat(String userMessage, LlmRequestOptions options,
                            Consumer<String> streamHandler, Runnable onComplete, Consumer<Throwable> onError) {
-        streamChat(List.of(UserMessage.from(userMessage)), options, streamHandler, onComplete, onError);
+        return streamChat(List.of(UserMessage.from(userMessage)), options, streamHandler, onComplete, onError);
     }
     
     /**
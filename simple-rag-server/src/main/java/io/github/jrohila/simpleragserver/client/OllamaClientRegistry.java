@@ -0,0 +1,228 @@
+package io.github.jrohila.simpleragserver.client;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Registry of built langchain4j Ollama models.
+ * Models are cached by their effective options and reused across requests.
+ * All models share one JDK HttpClient, and with it one keep-alive connection
+ * pool, so requests with different per-request settings still reuse open
+ * connections. Entries that have not been used for the configured idle time
+ * are evicted.
+ */
+@Component
+public class OllamaClientRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaClientRegistry.class);
+
+    private final java.net.http.HttpClient sharedHttpClient;
+    private final Map<Duration, HttpClient> transports = new ConcurrentHashMap<>();
+    private final Map<Object, CachedModel> models = new ConcurrentHashMap<>();
+    private final Duration idleTimeout;
+    private final int maxEntries;
+
+    private static final class CachedModel {
+        private final Object model;
+        private volatile long lastAccess;
+
+        private CachedModel(Object model) {
+            this.model = model;
+            this.lastAccess = System.nanoTime();
+        }
+    }
+
+    public OllamaClientRegistry(
+            @Value("${llm.ollama.http.connect-timeout:10}") int connectTimeoutSeconds,
+            @Value("${llm.ollama.client.idle-timeout:600}") int idleTimeoutSeconds,
+            @Value("${llm.ollama.client.max-entries:64}") int maxEntries) {
+        this.sharedHttpClient = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(connectTimeoutSeconds))
+                .build();
+        this.idleTimeout = Duration.ofSeconds(idleTimeoutSeconds);
+        this.maxEntries = maxEntries;
+        log.info("Initialized OllamaClientRegistry with idle timeout: {}s, max entries: {}", idleTimeoutSeconds, maxEntries);
+    }
+
+    /**
+     * Returns the cached model for the key, building it with the factory on
+     * first use. The key must be a value object (e.g. a record) that contains
+     * every option the model was built with.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrCreate(Object key, Supplier<T> factory) {
+        CachedModel cached = models.get(key);
+        if (cached == null) {
+            if (models.size() >= maxEntries) {
+                evictLeastRecentlyUsed();
+            }
+            cached = models.computeIfAbsent(key, k -> {
+                log.debug("Building Ollama model for {}", k);
+                return new CachedModel(factory.get());
+            });
+        }
+        cached.lastAccess = System.nanoTime();
+        return (T) cached.model;
+    }
+
+    /**
+     * HttpClientBuilder to pass to langchain4j model builders. It hands out a
+     * transport backed by the shared JDK HttpClient; connect timeout is taken
+     * from the shared client, the read timeout is kept per transport.
+     */
+    public HttpClientBuilder httpClientBuilder() {
+        return new SharedHttpClientBuilder();
+    }
+
+    public int size() {
+        return models.size();
+    }
+
+    @Scheduled(fixedDelayString = "${llm.ollama.client.eviction-interval-ms:60000}")
+    public void evictIdleModels() {
+        evictIdle(idleTimeout);
+    }
+
+    private void evictIdle(Duration maxIdle) {
+        long now = System.nanoTime();
+        int before = models.size();
+        models.entrySet().removeIf(e -> now - e.getValue().lastAccess >= maxIdle.toNanos());
+        int evicted = before - models.size();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle Ollama models", evicted);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        models.entrySet().stream()
+                .min((a, b) -> Long.compare(a.getValue().lastAccess, b.getValue().lastAccess))
+                .ifPresent(e -> models.remove(e.getKey(), e.getValue()));
+    }
+
+    private HttpClient transportFor(Duration readTimeout) {
+        return transports.computeIfAbsent(readTimeout, t -> JdkHttpClient.builder()
+                .httpClientBuilder(new FixedJdkHttpClientBuilder(sharedHttpClient))
+                .readTimeout(t.isZero() ? null : t)
+                .build());
+    }
+
+    private final class SharedHttpClientBuilder implements HttpClientBuilder {
+
+        private Duration connectTimeout;
+        private Duration readTimeout;
+
+        @Override
+        public Duration connectTimeout() {
+            return connectTimeout;
+        }
+
+        @Override
+        public HttpClientBuilder connectTimeout(Duration timeout) {
+            this.connectTimeout = timeout;
+            return this;
+        }
+
+        @Override
+        public Duration readTimeout() {
+            return readTimeout;
+        }
+
+        @Override
+        public HttpClientBuilder readTimeout(Duration timeout) {
+            this.readTimeout = timeout;
+            return this;
+        }
+
+        @Override
+        public HttpClient build() {
+            return transportFor(readTimeout != null ? readTimeout : Duration.ZERO);
+        }
+    }
+
+    /**
+     * java.net.http.HttpClient.Builder that always returns the same client.
+     * JdkHttpClient builds its delegate from a builder; this makes every
+     * JdkHttpClient share one connection pool. Configuration calls are ignored.
+     */
+    private static final class FixedJdkHttpClientBuilder implements java.net.http.HttpClient.Builder {
+
+        private final java.net.http.HttpClient client;
+
+        private FixedJdkHttpClientBuilder(java.net.http.HttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder cookieHandler(CookieHandler cookieHandler) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder connectTimeout(Duration duration) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder sslContext(SSLContext sslContext) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder sslParameters(SSLParameters sslParameters) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder executor(Executor executor) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder followRedirects(java.net.http.HttpClient.Redirect policy) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder version(java.net.http.HttpClient.Version version) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder priority(int priority) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder proxy(ProxySelector proxySelector) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient.Builder authenticator(Authenticator authenticator) {
+            return this;
+        }
+
+        @Override
+        public java.net.http.HttpClient build() {
+            return client;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.jrohila.simpleragserver.client;
 
 import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.ollama.OllamaEmbeddingModel;
 import dev.langchain4j.model.output.Response;
@@ -9,7 +10,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Ollama implementation of EmbeddingClient using langchain4j.
@@ -23,28 +27,47 @@ public class OllamaEmbeddingClient implements EmbeddingClient {
     private final String defaultModel;
     private final Duration timeout;
     private final Integer dimension;
+    private final int batchMaxSize;
+    private final int batchMaxBytes;
+    private final OllamaClientRegistry registry;
+    
+    private record EmbeddingModelKey(String baseUrl, String model, Duration timeout) {
+    }
     
     public OllamaEmbeddingClient(
             @Value("${llm.ollama.baseUrl:http://localhost:11434}") String baseUrl,
             @Value("${llm.ollama.embedding.model:embeddinggemma:300m}") String defaultModel,
             @Value("${llm.ollama.embedding.timeout:60}") int timeoutSeconds,
-            @Value("${llm.ollama.embedding.dimension:768}") Integer dimension) {
+            @Value("${llm.ollama.embedding.dimension:768}") Integer dimension,
+            @Value("${llm.ollama.embedding.batch.max-size:32}") int batchMaxSize,
+            @Value("${llm.ollama.embedding.batch.max-bytes:262144}") int batchMaxBytes,
+            OllamaClientRegistry registry) {
         this.baseUrl = baseUrl;
         this.defaultModel = defaultModel;
         this.timeout = Duration.ofSeconds(timeoutSeconds);
         this.dimension = dimension;
-        log.info("Initialized OllamaEmbeddingClient with model: {}, dimension: {}", defaultModel, dimension);
+        this.batchMaxSize = Math.max(1, batchMaxSize);
+        this.batchMaxBytes = Math.max(1, batchMaxBytes);
+        this.registry = registry;
+        log.info("Initialized OllamaEmbeddingClient with model: {}, dimension: {}, batch max size: {}, batch max bytes: {}",
+                defaultModel, dimension, this.batchMaxSize, this.batchMaxBytes);
+    }
+    
+    private EmbeddingModel buildModel() {
+        EmbeddingModelKey key = new EmbeddingModelKey(baseUrl, defaultModel, timeout);
+        return registry.getOrCreate(key, () -> OllamaEmbeddingModel.builder()
+                .httpClientBuilder(registry.httpClientBuilder())
+                .baseUrl(key.baseUrl())
+                .modelName(key.model())
+                .timeout(key.timeout())
+                .build());
     }
     
     @Override
     public float[] embed(String text) {
         log.debug("Generating embeddings for text of length: {}", text.length());
         
-        EmbeddingModel model = OllamaEmbeddingModel.builder()
-                .baseUrl(baseUrl)
-                .modelName(defaultModel)
-                .timeout(timeout)
-                .build();
+        EmbeddingModel model = buildModel();
         
         Response<Embedding> response = model.embed(text);
         Embedding embedding = response.content();
@@ -55,11 +78,77 @@ public class OllamaEmbeddingClient implements EmbeddingClient {
         return vector;
     }
     
+    /**
+     * Embeds the texts using Ollama's multi-input /api/embed endpoint.
+     * Texts are grouped into batches limited by both the configured max batch
+     * size and UTF-8 byte budget. A failing batch is split in half and retried
+     * until a single text fails, which is then rethrown.
+     */
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<float[]> result = new ArrayList<>(texts.size());
+        if (texts.isEmpty()) {
+            return result;
+        }
+        EmbeddingModel model = buildModel();
+        
+        List<String> batch = new ArrayList<>();
+        int batchBytes = 0;
+        for (String text : texts) {
+            int bytes = text.getBytes(StandardCharsets.UTF_8).length;
+            if (!batch.isEmpty() && (batch.size() >= batchMaxSize || batchBytes + bytes > batchMaxBytes)) {
+                result.addAll(embedBatch(model, batch));
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(text);
+            batchBytes += bytes;
+        }
+        result.addAll(embedBatch(model, batch));
+        
+        log.debug("Generated {} embeddings in batch mode", result.size());
+        return result;
+    }
+    
+    private List<float[]> embedBatch(EmbeddingModel model, List<String> batch) {
+        try {
+            List<TextSegment> segments = new ArrayList<>(batch.size());
+            for (String text : batch) {
+                segments.add(TextSegment.from(text));
+            }
+            List<Embedding> embeddings = model.embedAll(segments).content();
+            if (embeddings == null || embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Ollama returned " + (embeddings == null ? 0 : embeddings.size())
+                        + " embeddings for " + batch.size() + " inputs");
+            }
+            List<float[]> vectors = new ArrayList<>(embeddings.size());
+            for (Embedding embedding : embeddings) {
+                vectors.add(embedding.vector());
+            }
+            return vectors;
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                throw e;
+            }
+            int half = batch.size() / 2;
+            log.warn("Embedding batch of {} texts failed ({}), splitting and retrying", batch.size(), e.getMessage());
+            List<float[]> vectors = new ArrayList<>(batch.size());
+            vectors.addAll(embedBatch(model, batch.subList(0, half)));
+            vectors.addAll(embedBatch(model, batch.subList(half, batch.size())));
+            return vectors;
+        }
+    }
+    
     @Override
     public String getProviderName() {
         return "ollama";
     }
     
+    @Override
+    public String getModelName() {
+        return defaultModel;
+    }
+    
     @Override
     public int getDimension() {
         return dimension;
@@ -5,6 +5,11 @@ import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.StreamingHandle;
 import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.ollama.OllamaChatModel;
 import dev.langchain4j.model.ollama.OllamaStreamingChatModel;
@@ -29,14 +34,24 @@ public class OllamaLlmClient implements LlmClient {
     private final String baseUrl;
     private final String defaultModel;
     private final Duration timeout;
+    private final OllamaClientRegistry registry;
+    
+    /**
+     * Effective options a chat model is built with; used as the registry key.
+     */
+    private record ChatModelKey(boolean streaming, String baseUrl, String model, Duration timeout, Double temperature,
+            Integer numPredict, Double topP, Integer topK, List<String> stop) {
+    }
     
     public OllamaLlmClient(
             @Value("${llm.ollama.baseUrl:http://localhost:11434}") String baseUrl,
             @Value("${llm.ollama.model:llama3.2}") String defaultModel,
-            @Value("${llm.ollama.timeout:300}") int timeoutSeconds) {
+            @Value("${llm.ollama.timeout:300}") int timeoutSeconds,
+            OllamaClientRegistry registry) {
         this.baseUrl = baseUrl;
         this.defaultModel = defaultModel;
         this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.registry = registry;
     }
     
     @Override
@@ -54,7 +69,7 @@ public class OllamaLlmClient implements LlmClient {
     }
     
     @Override
-    public void streamChat(List<ChatMessage> messages, LlmRequestOptions options, 
+    public StreamingHandle streamChat(List<ChatMessage> messages, LlmRequestOptions options, 
                           Consumer<String> streamHandler, Runnable onComplete, Consumer<Throwable> onError) {
         log.info("Starting streaming chat with {} messages", messages.size());
         StreamingChatModel model = buildStreamingChatModel(options);
@@ -62,17 +77,32 @@ public class OllamaLlmClient implements LlmClient {
                 .messages(messages)
                 .build();
         
+        CancellableStream stream = new CancellableStream();
         model.chat(request, new StreamingChatResponseHandler() {
             @Override
-            public void onPartialResponse(String partialResponse) {
-                if (partialResponse != null && !partialResponse.isEmpty()) {
-                    log.debug("Received token: '{}'", partialResponse);
-                    streamHandler.accept(partialResponse);
+            public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+                // The HTTP stream can only be aborted through the handle passed with a partial response
+                if (stream.attach(context.streamingHandle())) {
+                    return;
+                }
+                String text = partialResponse.text();
+                if (text != null && !text.isEmpty()) {
+                    log.debug("Received token: '{}'", text);
+                    streamHandler.accept(text);
                 }
             }
             
+            @Override
+            public void onPartialThinking(PartialThinking partialThinking, PartialThinkingContext context) {
+                // Reasoning models think before answering; allows aborting during that phase too
+                stream.attach(context.streamingHandle());
+            }
+            
             @Override
             public void onCompleteResponse(ChatResponse completeResponse) {
+                if (stream.isCancelled()) {
+                    return;
+                }
                 log.info("Streaming complete. Total tokens: {}", 
                     completeResponse.tokenUsage() != null ? completeResponse.tokenUsage().totalTokenCount() : "unknown");
                 if (onComplete != null) {
@@ -82,6 +112,10 @@ public class OllamaLlmClient implements LlmClient {
             
             @Override
             public void onError(Throwable error) {
+                if (stream.isCancelled()) {
+                    log.debug("Streaming error after cancel: {}", error.getMessage());
+                    return;
+                }
                 log.error("Streaming error", error);
                 if (onError != null) {
                     onError.accept(error);
@@ -91,62 +125,129 @@ public class OllamaLlmClient implements LlmClient {
             }
         });
         log.info("Streaming chat handler registered");
+        return stream;
     }
     
-    @Override
-    public String getProviderName() {
-        return "ollama";
-    }
-    
-    private ChatModel buildChatModel(LlmRequestOptions options) {
-        OllamaChatModel.OllamaChatModelBuilder builder = OllamaChatModel.builder()
-                .baseUrl(baseUrl)
-                .modelName(options.getModel() != null ? options.getModel() : defaultModel)
-                .timeout(timeout);
+    /**
+     * Cancellation handle returned to callers before the model has produced
+     * anything. Ollama's handle only becomes available with the first partial
+     * response (the prompt is still being evaluated until then), so a cancel
+     * that arrives earlier is applied as soon as that handle shows up.
+     */
+    private static final class CancellableStream implements StreamingHandle {
+        
+        private volatile boolean cancelled;
+        private volatile StreamingHandle delegate;
         
-        if (options.getTemperature() != null) {
-            builder.temperature(options.getTemperature());
+        /**
+         * Remembers the underlying handle and aborts it if cancel already happened.
+         * 
+         * @return true if the stream is cancelled and the response must be dropped
+         */
+        boolean attach(StreamingHandle handle) {
+            if (delegate == null && handle != null) {
+                delegate = handle;
+            }
+            if (cancelled) {
+                cancelDelegate();
+                return true;
+            }
+            return false;
         }
-        if (options.getMaxTokens() != null) {
-            builder.numPredict(options.getMaxTokens());
+        
+        @Override
+        public void cancel() {
+            if (!cancelled) {
+                cancelled = true;
+                log.info("Streaming chat cancelled by caller");
+                cancelDelegate();
+            }
         }
-        if (options.getTopP() != null) {
-            builder.topP(options.getTopP());
+        
+        private void cancelDelegate() {
+            StreamingHandle handle = delegate;
+            if (handle != null && !handle.isCancelled()) {
+                handle.cancel();
+            }
         }
-        if (options.getTopK() != null) {
-            builder.topK(options.getTopK());
+        
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
         }
-        if (options.getStopSequences() != null && !options.getStopSequences().isEmpty()) {
-            builder.stop(options.getStopSequences());
+    }
+    
+    @Override
+    public String getProviderName() {
+        return "ollama";
+    }
+    
+    private ChatModelKey toKey(boolean streaming, LlmRequestOptions options) {
+        if (options == null) {
+            return new ChatModelKey(streaming, baseUrl, defaultModel, timeout, null, null, null, null, null);
         }
-        
-        return builder.build();
+        List<String> stop = options.getStopSequences() != null && !options.getStopSequences().isEmpty()
+                ? List.copyOf(options.getStopSequences()) : null;
+        return new ChatModelKey(streaming, baseUrl,
+                options.getModel() != null ? options.getModel() : defaultModel,
+                timeout, options.getTemperature(), options.getMaxTokens(), options.getTopP(), options.getTopK(), stop);
+    }
+    
+    private ChatModel buildChatModel(LlmRequestOptions options) {
+        ChatModelKey key = toKey(false, options);
+        return registry.getOrCreate(key, () -> {
+            OllamaChatModel.OllamaChatModelBuilder builder = OllamaChatModel.builder()
+                    .httpClientBuilder(registry.httpClientBuilder())
+                    .baseUrl(key.baseUrl())
+                    .modelName(key.model())
+                    .timeout(key.timeout());
+            
+            if (key.temperature() != null) {
+                builder.temperature(key.temperature());
+            }
+            if (key.numPredict() != null) {
+                builder.numPredict(key.numPredict());
+            }
+            if (key.topP() != null) {
+                builder.topP(key.topP());
+            }
+            if (key.topK() != null) {
+                builder.topK(key.topK());
+            }
+            if (key.stop() != null) {
+                builder.stop(key.stop());
+            }
+            
+            return builder.build();
+        });
     }
     
     private StreamingChatModel buildStreamingChatModel(LlmRequestOptions options) {
-        OllamaStreamingChatModel.OllamaStreamingChatModelBuilder builder = OllamaStreamingChatModel.builder()
-                .baseUrl(baseUrl)
-                .modelName(options != null && options.getModel() != null ? options.getModel() : defaultModel)
-                .timeout(timeout);
-        
-        if (options != null) {
-            if (options.getTemperature() != null) {
-                builder.temperature(options.getTemperature());
+        ChatModelKey key = toKey(true, options);
+        return registry.getOrCreate(key, () -> {
+            OllamaStreamingChatModel.OllamaStreamingChatModelBuilder builder = OllamaStreamingChatModel.builder()
+                    .httpClientBuilder(registry.httpClientBuilder())
+                    .baseUrl(key.baseUrl())
+                    .modelName(key.model())
+                    .timeout(key.timeout());
+            
+            if (key.temperature() != null) {
+                builder.temperature(key.temperature());
             }
-            if (options.getMaxTokens() != null) {
-                builder.numPredict(options.getMaxTokens());
+            if (key.numPredict() != null) {
+                builder.numPredict(key.numPredict());
             }
-            if (options.getTopP() != null) {
-                builder.topP(options.getTopP());
+            if (key.topP() != null) {
+                builder.topP(key.topP());
             }
-            if (options.getTopK() != null) {
-                builder.topK(options.getTopK());
+            if (key.topK() != null) {
+                builder.topK(key.topK());
             }
-            if (options.getStopSequences() != null && !options.getStopSequences().isEmpty()) {
-                builder.stop(options.getStopSequences());
+            if (key.stop() != null) {
+                builder.stop(key.stop());
             }
-        }
-        
-        return builder.build();
+            
+            return builder.build();
+        });
     }
 }
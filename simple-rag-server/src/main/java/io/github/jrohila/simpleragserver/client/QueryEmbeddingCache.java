@@ -0,0 +1,172 @@
+package io.github.jrohila.simpleragserver.client;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory bounded LRU cache for query embeddings.
+ * Entries are keyed by (provider, model, normalized query text) and stored as
+ * primitive float arrays. The whole cache is flushed when the default embedding
+ * client reports a different provider, model or dimension than the one the
+ * cached vectors were computed with.
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryEmbeddingCache.class);
+
+    // Rough per entry overhead (map node, key string header, array header)
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final EmbeddingClientFactory embeddingClientFactory;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, float[]> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long usedBytes = 0;
+    private String modelFingerprint;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+
+    public QueryEmbeddingCache(
+            EmbeddingClientFactory embeddingClientFactory,
+            @Value("${embedding.query-cache.enabled:true}") boolean enabled,
+            @Value("${embedding.query-cache.max-entries:4096}") int maxEntries,
+            @Value("${embedding.query-cache.max-bytes:33554432}") long maxBytes) {
+        this.embeddingClientFactory = embeddingClientFactory;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        log.info("Initialized QueryEmbeddingCache: enabled={}, maxEntries={}, maxBytes={}", enabled, maxEntries, maxBytes);
+    }
+
+    /**
+     * Returns the embedding of the query using the default embedding client,
+     * computing and caching it on a miss.
+     *
+     * @param query The query text
+     * @return Embedding vector, callers must not modify the returned array
+     */
+    public float[] embed(String query) {
+        EmbeddingClient client = embeddingClientFactory.getDefaultClient();
+        if (!enabled || query == null) {
+            return client.embed(query);
+        }
+        String fingerprint = client.getProviderName() + "|" + client.getModelName() + "|" + client.getDimension();
+        String key = fingerprint + "|" + normalize(query);
+
+        lock.lock();
+        try {
+            if (!fingerprint.equals(modelFingerprint)) {
+                if (modelFingerprint != null) {
+                    log.info("Embedding model changed from {} to {}, flushing {} cached query embeddings", modelFingerprint, fingerprint, entries.size());
+                    clearLocked();
+                    flushes.incrementAndGet();
+                }
+                modelFingerprint = fingerprint;
+            }
+            float[] cached = entries.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Compute outside the lock, concurrent misses for the same query may both embed
+        misses.incrementAndGet();
+        float[] vector = client.embed(query);
+
+        lock.lock();
+        try {
+            if (fingerprint.equals(modelFingerprint) && !entries.containsKey(key)) {
+                entries.put(key, vector);
+                usedBytes += sizeOf(key, vector);
+                evictLocked();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return vector;
+    }
+
+    public void flush() {
+        lock.lock();
+        try {
+            clearLocked();
+            flushes.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("enabled", enabled);
+            stats.put("model", modelFingerprint);
+            stats.put("size", entries.size());
+            stats.put("usedBytes", usedBytes);
+            stats.put("maxEntries", maxEntries);
+            stats.put("maxBytes", maxBytes);
+        } finally {
+            lock.unlock();
+        }
+        long h = hits.get();
+        long m = misses.get();
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("hitRatio", (h + m) == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("evictions", evictions.get());
+        stats.put("flushes", flushes.get());
+        return stats;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    static String normalize(String query) {
+        String normalized = Normalizer.normalize(query, Normalizer.Form.NFC);
+        return normalized.strip().replaceAll("\\s+", " ");
+    }
+
+    private void evictLocked() {
+        Iterator<Map.Entry<String, float[]>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || usedBytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, float[]> eldest = it.next();
+            usedBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void clearLocked() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    private static long sizeOf(String key, float[] vector) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + 4L * vector.length;
+    }
+}
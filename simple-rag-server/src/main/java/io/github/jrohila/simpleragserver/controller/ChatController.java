@@ -9,12 +9,24 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.jrohila.simpleragserver.domain.ChatEntity;
+import io.github.jrohila.simpleragserver.pipeline.ContextAdditionPipe;
 import io.github.jrohila.simpleragserver.repository.ChatManagerService;
+import io.github.jrohila.simpleragserver.util.ShutdownOnFailureScope;
+import io.github.jrohila.simpleragserver.util.SseFrameWriter;
+import io.github.jrohila.simpleragserver.util.StreamFrameTemplate;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
-import java.util.concurrent.CompletableFuture;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.Disposable;
 
 @RestController
 public class ChatController {
@@ -22,28 +34,54 @@ public class ChatController {
     @Autowired
     private ChatManagerService chatManagerService;
 
+    @Autowired
+    private ContextAdditionPipe contextAdditionPipe;
+
     private final ChatService chatService;
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
 
     @Value("${llm.ollama.model}")
     private String defaultModel;
 
+    // Runs retrieval and stream setup for SSE requests, off the common pool
+    private final ExecutorService streamExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("chat-stream-", 0).factory());
+
+    // Flushes coalesced SSE frames when their window expires
+    private final ScheduledExecutorService coalesceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-coalesce");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${processing.chat.stream.coalesce-window-ms:0}")
+    private long coalesceWindowMs;
+
+    @Value("${processing.chat.stream.coalesce-max-bytes:512}")
+    private int coalesceMaxBytes;
+
     public ChatController(ChatService chatService) {
         this.chatService = chatService;
     }
 
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+        coalesceScheduler.shutdownNow();
+    }
+
     // OpenAI-compatible chat completions endpoint
     @PostMapping(path = {"/{publicName}/v1/chat/completions", "/{publicName}/api/chat"})
     public ResponseEntity<?> createCompletion(@PathVariable String publicName,
             @RequestBody OpenAiChatRequestDTO request,
             @RequestParam(value = "useRag", required = false) Boolean useRag) {
         try {
-            // Fetch ChatEntity by publicName
-            var chatEntityOpt = chatManagerService.getByPublicName(publicName);
-            if (!chatEntityOpt.isPresent()) {
+            // Fetch ChatEntity by publicName, preparing retrieval for the prompt at the same time
+            ResolvedRequest resolved = this.resolve(publicName, request);
+            if (resolved.chatEntity() == null) {
                 return ResponseEntity.badRequest().body("Chat with publicName '" + publicName + "' not found");
             }
-            var chatEntity = chatEntityOpt.get();
+            var chatEntity = resolved.chatEntity();
+            var prepared = resolved.prepared();
 
             // Apply LLMConfig from ChatEntity - server config always overrides client values
             applyLLMConfigToRequest(request, chatEntity.getLlmConfig());
@@ -62,9 +100,13 @@ public class ChatController {
                 // Return SSE streaming response with 5 minute timeout
                 SseEmitter emitter = new SseEmitter(300000L); // 5 minutes timeout (300000 ms)
 
+                // Cancels preparation and generation once the client is gone
+                StreamCancellation cancellation = new StreamCancellation();
+
                 // Add timeout handler
                 emitter.onTimeout(() -> {
                     log.warn("SSE connection timed out for chat: {}", publicName);
+                    cancellation.cancel();
                     try {
                         emitter.send(SseEmitter.event()
                                 .data("{\"error\":\"Request timed out. Please try a shorter query or increase timeout.\"}"));
@@ -77,32 +119,43 @@ public class ChatController {
                 // Add error handler
                 emitter.onError((ex) -> {
                     log.error("Error in SSE stream", ex);
+                    cancellation.cancel();
                     emitter.completeWithError(ex);
                 });
 
-                // Add completion handler
+                // Add completion handler; also fires when the client disconnects
                 emitter.onCompletion(() -> {
+                    cancellation.cancel();
                     log.info("SSE stream completed for chat: {}", publicName);
                 });
 
-                CompletableFuture.runAsync(() -> {
+                cancellation.bind(streamExecutor.submit(() -> {
                     try {
-                        chatService.chatStream(request, chatEntity)
-                                .doOnNext(chunk -> {
+                        ChatService.StreamedChat stream = chatService.chatStreamDeltas(request, chatEntity, prepared);
+                        SseFrameWriter writer = new SseFrameWriter(emitter,
+                                new StreamFrameTemplate(stream.id(), stream.created(), stream.model()),
+                                coalesceWindowMs, coalesceMaxBytes, coalesceScheduler, () -> {
+                                    log.warn("Error sending SSE message, cancelling stream for chat: {}", publicName);
+                                    cancellation.cancel();
+                                });
+                        Disposable subscription = stream.deltas()
+                                .doOnNext(delta -> {
                                     try {
-                                        String jsonData = toJson(chunk);
-                                        emitter.send(SseEmitter.event().data(jsonData));
+                                        writer.write(delta);
                                     } catch (IOException e) {
-                                        log.error("Error sending SSE message", e);
+                                        log.warn("Error sending SSE message, cancelling stream: {}", e.getMessage());
+                                        writer.close();
+                                        cancellation.cancel();
                                         emitter.completeWithError(e);
                                     } catch (IllegalStateException e) {
-                                        log.warn("Attempted to send to completed emitter", e);
-                                        // Silently ignore - connection already closed
+                                        log.debug("Attempted to send to completed emitter, cancelling stream");
+                                        writer.close();
+                                        cancellation.cancel();
                                     }
                                 })
                                 .doOnComplete(() -> {
                                     try {
-                                        emitter.send(SseEmitter.event().data("[DONE]"));
+                                        writer.finish("stop");
                                         emitter.complete();
                                     } catch (IOException | IllegalStateException e) {
                                         log.debug("Error completing emitter", e);
@@ -110,6 +163,7 @@ public class ChatController {
                                 })
                                 .doOnError((error) -> {
                                     log.error("Error in chat completion stream", error);
+                                    writer.close();
                                     try {
                                         emitter.send(SseEmitter.event()
                                                 .data("{\"error\":\"" + error.getMessage() + "\"}"));
@@ -118,12 +172,19 @@ public class ChatController {
                                         log.error("Error sending error message", e);
                                     }
                                 })
-                                .subscribe();
+                                .doOnCancel(writer::close)
+                                .subscribe(delta -> {
+                                }, error -> log.debug("Chat stream for {} ended with error: {}", publicName, error.getMessage()));
+                        cancellation.bind(subscription);
                     } catch (Exception e) {
-                        log.error("Exception in async task", e);
-                        emitter.completeWithError(e);
+                        if (cancellation.isCancelled()) {
+                            log.info("Chat stream for {} cancelled before generation started", publicName);
+                        } else {
+                            log.error("Exception in async task", e);
+                            emitter.completeWithError(e);
+                        }
                     }
-                });
+                }));
                 return ResponseEntity.ok()
                         .contentType(MediaType.TEXT_EVENT_STREAM)
                         .body(emitter);
@@ -131,14 +192,109 @@ public class ChatController {
                 // Non-streaming response
                 return ResponseEntity.ok()
                         .contentType(MediaType.APPLICATION_JSON)
-                        .body(chatService.chat(request, chatEntity));
+                        .body(chatService.chat(request, chatEntity, prepared));
             }
+        } catch (TimeoutException e) {
+            log.warn("Chat '{}' could not be looked up within {}", publicName, contextAdditionPipe.getRetrievalTimeout());
+            return ResponseEntity.status(504).body("Chat with publicName '" + publicName + "' could not be looked up in time");
         } catch (Throwable t) {
             log.error("Error in createCompletion", t);
             return ResponseEntity.status(500).body("Internal server error: " + t.getMessage());
         }
     }
 
+    /**
+     * Links an SSE emitter to the work producing its events: the task that
+     * runs retrieval and starts the LLM stream, then the stream subscription
+     * itself. Whichever is bound when cancel happens is stopped; anything
+     * bound later is stopped right away.
+     */
+    private static final class StreamCancellation {
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private volatile Future<?> task;
+        private volatile Disposable subscription;
+
+        void bind(Future<?> task) {
+            this.task = task;
+            if (cancelled.get()) {
+                task.cancel(true);
+            }
+        }
+
+        void bind(Disposable subscription) {
+            this.subscription = subscription;
+            if (cancelled.get()) {
+                subscription.dispose();
+            }
+        }
+
+        boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        void cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            Disposable s = subscription;
+            if (s != null) {
+                s.dispose();
+            }
+            Future<?> t = task;
+            if (t != null) {
+                t.cancel(true);
+            }
+        }
+    }
+
+    private record ResolvedRequest(ChatEntity chatEntity, ContextAdditionPipe.PreparedRetrieval prepared) {
+    }
+
+    /**
+     * Looks up the chat and embeds the prompt / extracts its boost terms
+     * concurrently under one deadline. A missing chat cancels the retrieval
+     * branch; a failed retrieval only means the chat service retries it
+     * inline, as it would without preparation. When the deadline passes both
+     * branches are cancelled: a chat that was already found is still served
+     * without the prepared retrieval, otherwise the TimeoutException is
+     * thrown.
+     */
+    private ResolvedRequest resolve(String publicName, OpenAiChatRequestDTO request) throws Exception {
+        try (ShutdownOnFailureScope scope = new ShutdownOnFailureScope("chat-resolve")) {
+            Future<ChatEntity> lookup = scope.fork(() -> chatManagerService.getByPublicName(publicName).orElseThrow());
+            Future<ContextAdditionPipe.PreparedRetrieval> retrieval = chatService.isTitleRequest(request)
+                    ? null
+                    : scope.fork(() -> this.prepareRetrieval(request));
+            try {
+                scope.join(contextAdditionPipe.getRetrievalTimeout());
+            } catch (TimeoutException e) {
+                if (lookup.state() != Future.State.SUCCESS) {
+                    throw e;
+                }
+                log.warn("Retrieval preparation did not finish within {}, continuing without it", contextAdditionPipe.getRetrievalTimeout());
+                return new ResolvedRequest(lookup.resultNow(), null);
+            }
+            return new ResolvedRequest(lookup.resultNow(), retrieval != null ? retrieval.resultNow() : null);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof NoSuchElementException) {
+                return new ResolvedRequest(null, null);
+            }
+            throw e;
+        }
+    }
+
+    private ContextAdditionPipe.PreparedRetrieval prepareRetrieval(OpenAiChatRequestDTO request) throws InterruptedException {
+        try {
+            return contextAdditionPipe.prepare(request.getMessages());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Retrieval preparation failed, continuing without it: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Apply LLMConfig values from ChatEntity to OpenAiChatRequest. Server-side
      * configuration ALWAYS overrides client values for security and
@@ -183,14 +339,4 @@ public class ChatController {
                 request.getMaxTokens(), request.getTemperature(), request.getTopP(),
                 request.getTopK(), request.getFrequencyPenalty(), request.getMinTokens(), request.getDoSample());
     }
-
-    private static final ObjectMapper mapper = new ObjectMapper();
-
-    private static String toJson(Object obj) {
-        try {
-            return mapper.writeValueAsString(obj);
-        } catch (JsonProcessingException e) {
-            return "{\"error\":\"serialization_failed\"}";
-        }
-    }
 }
@@ -1,6 +1,8 @@
 package io.github.jrohila.simpleragserver.controller;
 
 import io.github.jrohila.simpleragserver.client.EmbeddingClientFactory;
+import io.github.jrohila.simpleragserver.client.QueryEmbeddingCache;
+import java.util.Map;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,6 +14,9 @@ public class ClientController {
     @Autowired
     private EmbeddingClientFactory embeddingClientFactory;
 
+    @Autowired
+    private QueryEmbeddingCache queryEmbeddingCache;
+
     @PostMapping("/embed")
     public ResponseEntity<float[]> calculateEmbedding(@RequestBody String input) {        
         float[] embedding = embeddingClientFactory.getDefaultClient().embed(input);
@@ -22,4 +27,15 @@ public class ClientController {
         }
         return ResponseEntity.ok(floatEmbedding);
     }
+
+    @GetMapping("/embed/cache")
+    public ResponseEntity<Map<String, Object>> getEmbeddingCacheStats() {
+        return ResponseEntity.ok(queryEmbeddingCache.getStats());
+    }
+
+    @DeleteMapping("/embed/cache")
+    public ResponseEntity<Void> flushEmbeddingCache() {
+        queryEmbeddingCache.flush();
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,5 +1,11 @@
 package io.github.jrohila.simpleragserver.controller;
 
+import io.github.jrohila.simpleragnlp.CoreNlpPipelinePool;
+import io.github.jrohila.simpleragserver.service.ChatResponsePostProcessor;
+import io.github.jrohila.simpleragserver.service.NlpService;
+import io.github.jrohila.simpleragserver.startup.NlpModelPreloader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -7,12 +13,22 @@ import org.springframework.web.bind.annotation.RestController;
 
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/health")
 public class HealthController {
 
+    @Autowired
+    private ChatResponsePostProcessor postProcessor;
+
+    @Autowired
+    private NlpService nlpService;
+
+    @Autowired
+    private NlpModelPreloader nlpModelPreloader;
+
     @GetMapping("/ping")
     public ResponseEntity<Map<String, Object>> ping() {
         Map<String, Object> payload = new HashMap<>();
@@ -20,4 +36,24 @@ public class HealthController {
         payload.put("timestamp", Instant.now().toString());
         return ResponseEntity.ok(payload);
     }
+
+    /**
+     * 200 once the preloaded NLP models have finished loading, 503 until then;
+     * for load balancer readiness checks.
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<NlpModelPreloader.Readiness> ready() {
+        NlpModelPreloader.Readiness readiness = nlpModelPreloader.getReadiness();
+        return ResponseEntity.status(readiness.ready() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(readiness);
+    }
+
+    @GetMapping("/post-processing")
+    public ResponseEntity<ChatResponsePostProcessor.Stats> postProcessing() {
+        return ResponseEntity.ok(postProcessor.getStats());
+    }
+
+    @GetMapping("/nlp")
+    public ResponseEntity<List<CoreNlpPipelinePool.Stats>> nlp() {
+        return ResponseEntity.ok(nlpService.getCoreNlpStats());
+    }
 }
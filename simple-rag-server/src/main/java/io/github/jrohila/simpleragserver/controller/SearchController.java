@@ -30,7 +30,7 @@ public class SearchController {
 
     // Lexical-only search (no vector, no hybrid), same payload as hybrid
     @PostMapping(path = "/lexical", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public List<SearchResultDTO> lexicalSearch(@RequestParam String collectionId, @RequestBody HybridSearchRequest req) {
+    public List<SearchResultDTO> lexicalSearch(@RequestParam String collectionId, @RequestParam(defaultValue = "false") boolean includeEmbeddings, @RequestBody HybridSearchRequest req) {
         if (req == null) {
             throw new IllegalArgumentException("Request must not be null");
         }
@@ -57,7 +57,7 @@ public class SearchController {
             }
         }
 
-        List<SearchResult<ChunkEntity>> hits = chunkSearchService.lexicalSearch(collectionId, query, matchType, svcTerms, size, enableFuzziness, language);
+        List<SearchResult<ChunkEntity>> hits = chunkSearchService.lexicalSearch(collectionId, query, matchType, svcTerms, size, enableFuzziness, language, includeEmbeddings);
 
         // Map to DTOs
         List<SearchResultDTO> out = new ArrayList<>();
@@ -69,7 +69,7 @@ public class SearchController {
 
     // Pure vector search (kNN) with optional language and mandatory term filters, plus client-side rerank by boost weights
     @PostMapping(path = "/vector", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public List<SearchResultDTO> vectorSearch(@RequestParam String collectionId, @RequestBody VectorSearchRequest req) {
+    public List<SearchResultDTO> vectorSearch(@RequestParam String collectionId, @RequestParam(defaultValue = "false") boolean includeEmbeddings, @RequestBody VectorSearchRequest req) {
         if (req == null) {
             throw new IllegalArgumentException("Request must not be null");
         }
@@ -91,7 +91,7 @@ public class SearchController {
             }
         }
 
-        List<SearchResult<ChunkEntity>> hits = chunkSearchService.vectorSearch(collectionId, query, svcTerms, size, language);
+        List<SearchResult<ChunkEntity>> hits = chunkSearchService.vectorSearch(collectionId, query, svcTerms, size, language, includeEmbeddings);
 
         List<SearchResultDTO> out = new ArrayList<>();
         hits.forEach(hit -> {
@@ -102,7 +102,7 @@ public class SearchController {
 
     // Hybrid search using Spring Data OpenSearch (lexical + kNN with per-term boost and mandatory filters)
     @PostMapping(path = "/hybrid", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public List<SearchResultDTO> hybridSearch(@RequestParam String collectionId, @RequestBody HybridSearchRequest req) {
+    public List<SearchResultDTO> hybridSearch(@RequestParam String collectionId, @RequestParam(defaultValue = "false") boolean includeEmbeddings, @RequestBody HybridSearchRequest req) {
         if (req == null) {
             throw new IllegalArgumentException("Request must not be null");
         }
@@ -129,7 +129,7 @@ public class SearchController {
             }
         }
 
-        List<SearchResult<ChunkEntity>> hits = chunkSearchService.hybridSearch(collectionId, query, matchType, svcTerms, size, enableFuzziness, language);
+        List<SearchResult<ChunkEntity>> hits = chunkSearchService.hybridSearch(collectionId, query, matchType, svcTerms, size, enableFuzziness, language, includeEmbeddings);
         // Map to SearchResultDTO for consistent response shape
         List<SearchResultDTO> out = new ArrayList<>();
         hits.forEach(hit -> {
@@ -2,12 +2,14 @@ package io.github.jrohila.simpleragserver.domain;
 
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.jrohila.simpleragserver.util.FloatVectorDeserializer;
+import io.github.jrohila.simpleragserver.util.FloatVectorSerializer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
-import java.util.List;
-
 
 @Getter
 @Setter
@@ -38,7 +40,13 @@ public class ChunkEntity {
     // Reference to the parent document by id (denormalized reference)
     private String documentId;
 
+    // Number of tokens in the trimmed text, computed once at ingest so context packing doesn't re-tokenize.
+    // Null for chunks indexed before the field existed, until the migration backfills them.
+    private Integer tokenCount;
+
     // Embedding stored for KNN search - ensure index mapping defines knn_vector
     // Spring Data doesn't have a dedicated annotation for knn_vector; create index with proper mapping.
-    private List<Float> embedding;
+    @JsonSerialize(using = FloatVectorSerializer.class)
+    @JsonDeserialize(using = FloatVectorDeserializer.class)
+    private float[] embedding;
 }
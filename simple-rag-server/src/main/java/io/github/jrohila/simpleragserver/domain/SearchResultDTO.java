@@ -4,6 +4,11 @@
  */
 package io.github.jrohila.simpleragserver.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.github.jrohila.simpleragserver.util.FloatVectorDeserializer;
+import io.github.jrohila.simpleragserver.util.FloatVectorSerializer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -20,7 +25,10 @@ public class SearchResultDTO {
     private float score;
     private String text;
     private ReferenceDTO reference;
-    // Embedding vector for the chunk (if present in index)
-    private java.util.List<Float> embedding;
+    // Embedding vector for the chunk (only when requested with includeEmbeddings)
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonSerialize(using = FloatVectorSerializer.class)
+    @JsonDeserialize(using = FloatVectorDeserializer.class)
+    private float[] embedding;
 
 }
@@ -0,0 +1,35 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Persisted memory of one conversation: the extracted facts and the rolling
+ * conversation tokens they are looked up by.
+ *
+ * @author Jukka
+ */
+@Getter
+@Setter
+@ToString
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UserFactsEntity {
+
+    private String id;
+
+    private List<Integer> tokens;
+
+    private List<ExtractedFactDTO> facts;
+
+    private String created;
+
+    private String modified;
+
+}
@@ -0,0 +1,15 @@
+package io.github.jrohila.simpleragserver.event;
+
+import lombok.Getter;
+
+/**
+ * Event published when a collection is deleted
+ */
+@Getter
+public class CollectionDeleteEvent {
+    private final String collectionId;
+
+    public CollectionDeleteEvent(String collectionId) {
+        this.collectionId = collectionId;
+    }
+}
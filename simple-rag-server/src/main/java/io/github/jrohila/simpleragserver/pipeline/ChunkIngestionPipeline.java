@@ -0,0 +1,403 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.pipeline;
+
+import io.github.jrohila.simpleragserver.client.EmbeddingClientFactory;
+import io.github.jrohila.simpleragserver.domain.ChunkEntity;
+import io.github.jrohila.simpleragserver.domain.DoclingChunkResponse;
+import io.github.jrohila.simpleragserver.domain.DocumentEntity;
+import io.github.jrohila.simpleragserver.repository.ChunkService;
+import io.github.jrohila.simpleragserver.service.NlpService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Staged ingestion of Docling chunks: NLP/quality gate -> embedding ->
+ * indexing. Stages are connected with bounded queues, so a slow stage blocks
+ * the previous one instead of letting prepared chunks and vectors pile up on
+ * the heap. Each stage runs a configurable number of workers on virtual
+ * threads, which lets the CPU bound NLP work overlap with the network bound
+ * embedding and bulk indexing calls.
+ *
+ * @author Jukka
+ */
+@Component
+public class ChunkIngestionPipeline {
+
+    private static final Logger LOGGER = Logger.getLogger(ChunkIngestionPipeline.class.getName());
+
+    private static final Source SOURCE_END = new Source(null, -1);
+    private static final Pending PENDING_END = new Pending(null, null);
+
+    @Autowired
+    private EmbeddingClientFactory embedService;
+
+    @Autowired
+    private ChunkService chunkService;
+
+    @Autowired
+    private NlpService nlpService;
+
+    @Autowired
+    private ChunkQualityGate qualityGate;
+
+    @Value("${processing.ingestion.queue-capacity:64}")
+    private int queueCapacity;
+    @Value("${processing.ingestion.nlp.parallelism:2}")
+    private int nlpParallelism;
+    @Value("${processing.ingestion.embed.parallelism:2}")
+    private int embedParallelism;
+    @Value("${processing.ingestion.embed.batch-size:32}")
+    private int embedBatchSize;
+    @Value("${processing.ingestion.index.parallelism:1}")
+    private int indexParallelism;
+    @Value("${processing.ingestion.index.batch-size:200}")
+    private int indexBatchSize;
+    @Value("${processing.ingestion.language.verify-every:16}")
+    private int languageVerifyEvery;
+    @Value("${processing.ingestion.language.verify-min-chars:200}")
+    private int languageVerifyMinChars;
+
+    private record Source(DoclingChunkResponse.Chunk chunk, int ordinal) {
+    }
+
+    private record Pending(ChunkEntity chunk, String embedInput) {
+    }
+
+    public record StageStats(String name, int workers, long itemsIn, long itemsOut, long busyMillis, long wallMillis) {
+
+        public double throughputPerSecond() {
+            return wallMillis <= 0 ? itemsOut : itemsOut * 1000.0 / wallMillis;
+        }
+    }
+
+    public record IngestionResult(int total, int saved, int rejected, int failed, List<StageStats> stages) {
+    }
+
+    /**
+     * Runs the given Docling chunks of one document through the pipeline and
+     * blocks until all stages are drained.
+     */
+    public IngestionResult ingest(String collectionId, DocumentEntity doc, List<DoclingChunkResponse.Chunk> doclingChunks) throws InterruptedException {
+        String documentId = doc.getId();
+        int capacity = Math.max(1, queueCapacity);
+        BlockingQueue<Source> nlpQueue = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Pending> embedQueue = new ArrayBlockingQueue<>(capacity);
+        BlockingQueue<Pending> indexQueue = new ArrayBlockingQueue<>(capacity);
+
+        Stage nlp = new Stage("nlp", Math.max(1, nlpParallelism));
+        Stage embed = new Stage("embed", Math.max(1, embedParallelism));
+        Stage index = new Stage("index", Math.max(1, indexParallelism));
+
+        AtomicInteger saved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        // Chunks of a document nearly always share its language, so it is detected once from a sample
+        String documentLanguage;
+        try {
+            List<String> texts = new ArrayList<>(doclingChunks.size());
+            for (DoclingChunkResponse.Chunk c : doclingChunks) {
+                texts.add(c.getText());
+            }
+            documentLanguage = nlpService.detectDocumentLanguage(texts);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "ChunkIngestionPipeline: Failed to detect document language for documentId=" + documentId, ex);
+            documentLanguage = "und";
+        }
+        String language = documentLanguage;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < nlp.workers; i++) {
+            workers.add(nlp.start(() -> {
+                try {
+                    while (true) {
+                        Source source = nlpQueue.take();
+                        if (source == SOURCE_END) {
+                            break;
+                        }
+                        nlp.itemsIn.increment();
+                        long t0 = System.nanoTime();
+                        Pending pending;
+                        try {
+                            pending = this.prepare(documentId, doc.getOriginalFilename(), language, source);
+                        } catch (Exception ex) {
+                            LOGGER.log(Level.WARNING, "ChunkIngestionPipeline: preparing chunk failed for documentId=" + documentId, ex);
+                            failed.incrementAndGet();
+                            continue;
+                        } finally {
+                            nlp.busyNanos.add(System.nanoTime() - t0);
+                        }
+                        if (pending == null) {
+                            rejected.incrementAndGet();
+                            continue;
+                        }
+                        nlp.itemsOut.increment();
+                        embedQueue.put(pending);
+                    }
+                } finally {
+                    // Downstream workers wait for the end markers, so they are sent however this worker exits
+                    if (nlp.finishWorker()) {
+                        for (int n = 0; n < embed.workers; n++) {
+                            embedQueue.put(PENDING_END);
+                        }
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < embed.workers; i++) {
+            workers.add(embed.start(() -> {
+                try {
+                    boolean end = false;
+                    while (!end) {
+                        List<Pending> batch = new ArrayList<>();
+                        end = takeBatch(embedQueue, batch, embedBatchSize);
+                        if (batch.isEmpty()) {
+                            continue;
+                        }
+                        embed.itemsIn.add(batch.size());
+                        long t0 = System.nanoTime();
+                        try {
+                            List<String> inputs = new ArrayList<>(batch.size());
+                            for (Pending p : batch) {
+                                inputs.add(p.embedInput());
+                            }
+                            List<float[]> vectors = embedService.getDefaultClient().embedAll(inputs);
+                            for (int n = 0; n < batch.size(); n++) {
+                                batch.get(n).chunk().setEmbedding(vectors.get(n));
+                            }
+                        } catch (Exception ex) {
+                            LOGGER.log(Level.WARNING, "ChunkIngestionPipeline: embedding of " + batch.size() + " chunks failed for documentId=" + documentId, ex);
+                            failed.addAndGet(batch.size());
+                            continue;
+                        } finally {
+                            embed.busyNanos.add(System.nanoTime() - t0);
+                        }
+                        embed.itemsOut.add(batch.size());
+                        for (Pending p : batch) {
+                            indexQueue.put(p);
+                        }
+                    }
+                } finally {
+                    if (embed.finishWorker()) {
+                        for (int n = 0; n < index.workers; n++) {
+                            indexQueue.put(PENDING_END);
+                        }
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < index.workers; i++) {
+            workers.add(index.start(() -> {
+                try {
+                    boolean end = false;
+                    while (!end) {
+                        List<Pending> batch = new ArrayList<>();
+                        end = takeBatch(indexQueue, batch, indexBatchSize);
+                        if (batch.isEmpty()) {
+                            continue;
+                        }
+                        index.itemsIn.add(batch.size());
+                        long t0 = System.nanoTime();
+                        try {
+                            List<ChunkEntity> chunks = new ArrayList<>(batch.size());
+                            for (Pending p : batch) {
+                                chunks.add(p.chunk());
+                            }
+                            for (ChunkService.BulkItemResult result : chunkService.createAll(collectionId, chunks)) {
+                                if (result.isSuccess()) {
+                                    saved.incrementAndGet();
+                                    index.itemsOut.increment();
+                                } else {
+                                    rejected.incrementAndGet();
+                                    LOGGER.log(Level.FINE, "Skipping invalid/duplicate chunk. docId={0} status={1} reason={2}", new Object[]{documentId, result.status(), result.error()});
+                                }
+                            }
+                        } catch (Exception ex) {
+                            LOGGER.log(Level.WARNING, "ChunkIngestionPipeline: bulk indexing of " + batch.size() + " chunks failed for documentId=" + documentId, ex);
+                            failed.addAndGet(batch.size());
+                        } finally {
+                            index.busyNanos.add(System.nanoTime() - t0);
+                        }
+                    }
+                } finally {
+                    index.finishWorker();
+                }
+            }));
+        }
+
+        try {
+            int ordinal = 0;
+            for (DoclingChunkResponse.Chunk c : doclingChunks) {
+                nlpQueue.put(new Source(c, ordinal++));
+            }
+            for (int n = 0; n < nlp.workers; n++) {
+                nlpQueue.put(SOURCE_END);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException ex) {
+            workers.forEach(Thread::interrupt);
+            throw ex;
+        }
+
+        List<StageStats> stages = List.of(nlp.stats(), embed.stats(), index.stats());
+        for (StageStats st : stages) {
+            LOGGER.log(Level.INFO, "ChunkIngestionPipeline: stage={0} workers={1} in={2} out={3} busy={4}ms wall={5}ms throughput={6} items/s (docId={7})",
+                    new Object[]{st.name(), st.workers(), st.itemsIn(), st.itemsOut(), st.busyMillis(), st.wallMillis(),
+                        String.format("%.1f", st.throughputPerSecond()), documentId});
+        }
+        return new IngestionResult(doclingChunks.size(), saved.get(), rejected.get(), failed.get(), stages);
+    }
+
+    /**
+     * Converts a Docling chunk, assigns its language and applies the quality
+     * gate. Returns null when the chunk should be skipped.
+     */
+    private Pending prepare(String documentId, String documentName, String documentLanguage, Source source) {
+        DoclingChunkResponse.Chunk c = source.chunk();
+        ChunkEntity chunk = new ChunkEntity();
+        chunk.setText(c.getText());
+        chunk.setSectionTitle(c.getTitle());
+        if (c.getPageNumber() != null) {
+            chunk.setPageNumber(c.getPageNumber());
+        }
+        chunk.setLanguage(this.chunkLanguage(documentId, documentLanguage, source.ordinal(), chunk.getText()));
+        chunk.setDocumentId(documentId);
+        chunk.setTokenCount(chunkService.computeTokenCount(chunk.getText()));
+        // Copy original file name into chunk as documentName for denormalized display
+        chunk.setDocumentName(documentName);
+
+        // Build embedding input; skip if no text to embed
+        String embedInput = (chunk.getSectionTitle() == null ? "" : chunk.getSectionTitle())
+                + (chunk.getSectionTitle() == null ? "" : " : ")
+                + (chunk.getText() == null ? "" : chunk.getText());
+        if (embedInput.isBlank()) {
+            LOGGER.log(Level.FINE, "Skipping chunk without content (no embedding input). docId={0}", documentId);
+            return null;
+        }
+
+        // Quality gate: require at least 3 sentences
+        if (!qualityGate.filter(chunk)) {
+            LOGGER.log(Level.FINE, "Skipping chunk that failed quality gate. docId={0}", documentId);
+            return null;
+        }
+        return new Pending(chunk, embedInput);
+    }
+
+    /**
+     * The document language, unless this is one of the sampled chunks
+     * (every verify-every:th) and detection on its own text disagrees.
+     * Chunks shorter than verify-min-chars are never checked, as detection
+     * on a few words is less reliable than the document language.
+     */
+    private String chunkLanguage(String documentId, String documentLanguage, int ordinal, String text) {
+        if (languageVerifyEvery <= 0 || ordinal % languageVerifyEvery != 0
+                || text == null || text.length() < languageVerifyMinChars) {
+            return documentLanguage;
+        }
+        try {
+            String detected = nlpService.detectLanguage(text);
+            if (!"und".equals(detected) && !detected.equals(documentLanguage)) {
+                LOGGER.log(Level.FINE, "Chunk language differs from document. docId={0} chunk={1} language={2} document={3}",
+                        new Object[]{documentId, ordinal, detected, documentLanguage});
+                return detected;
+            }
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.WARNING, "ChunkIngestionPipeline: Failed to detect language for chunk in documentId=" + documentId, ex);
+        }
+        return documentLanguage;
+    }
+
+    /**
+     * Blocks for one item and then drains up to maxSize items without
+     * blocking. Returns true when an end marker was seen; extra end markers
+     * meant for sibling workers are put back.
+     */
+    private static boolean takeBatch(BlockingQueue<Pending> queue, List<Pending> batch, int maxSize) throws InterruptedException {
+        List<Pending> taken = new ArrayList<>();
+        taken.add(queue.take());
+        queue.drainTo(taken, Math.max(1, maxSize) - 1);
+        int ends = 0;
+        for (Pending p : taken) {
+            if (p == PENDING_END) {
+                ends++;
+            } else {
+                batch.add(p);
+            }
+        }
+        for (int i = 1; i < ends; i++) {
+            queue.put(PENDING_END);
+        }
+        return ends > 0;
+    }
+
+    @FunctionalInterface
+    private interface Worker {
+
+        void run() throws InterruptedException;
+    }
+
+    private static final class Stage {
+
+        private final String name;
+        private final int workers;
+        private final LongAdder itemsIn = new LongAdder();
+        private final LongAdder itemsOut = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final AtomicInteger running;
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong finished = new AtomicLong();
+        private final Thread.Builder threads;
+
+        private Stage(String name, int workers) {
+            this.name = name;
+            this.workers = workers;
+            this.running = new AtomicInteger(workers);
+            // One builder per stage so the workers are numbered ingest-<stage>-0, -1, ...
+            this.threads = Thread.ofVirtual().name("ingest-" + name + "-", 0);
+        }
+
+        private Thread start(Worker worker) {
+            return threads.start(() -> {
+                started.compareAndSet(0, System.nanoTime());
+                try {
+                    worker.run();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException ex) {
+                    LOGGER.log(Level.SEVERE, "ChunkIngestionPipeline: " + name + " worker died", ex);
+                }
+            });
+        }
+
+        /**
+         * Marks one worker as finished. Returns true for the last worker.
+         */
+        private boolean finishWorker() {
+            if (running.decrementAndGet() == 0) {
+                finished.set(System.nanoTime());
+                return true;
+            }
+            return false;
+        }
+
+        private StageStats stats() {
+            long wall = finished.get() > 0 ? (finished.get() - started.get()) / 1_000_000 : 0;
+            return new StageStats(name, workers, itemsIn.sum(), itemsOut.sum(), busyNanos.sum() / 1_000_000, wall);
+        }
+    }
+}
@@ -4,6 +4,7 @@
  */
 package io.github.jrohila.simpleragserver.pipeline;
 
+import io.github.jrohila.simpleragserver.client.QueryEmbeddingCache;
 import io.github.jrohila.simpleragserver.service.ChatService;
 import io.github.jrohila.simpleragserver.util.BoostTermDetector;
 import io.github.jrohila.simpleragserver.util.ChatHelper;
@@ -16,8 +17,14 @@ import io.github.jrohila.simpleragserver.service.UserFactsService;
 import io.github.jrohila.simpleragserver.service.util.SearchResult;
 import io.github.jrohila.simpleragserver.service.util.SearchTerm;
 import io.github.jrohila.simpleragserver.util.CosineSimilarityCalculator;
+import io.github.jrohila.simpleragserver.util.ShutdownOnFailureScope;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
 import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +47,13 @@ public class ContextAdditionPipe {
         KEEP, DROP_ALL
     }
 
+    /**
+     * Query embedding and boost terms for the latest user prompt, computed
+     * ahead of the search.
+     */
+    public record PreparedRetrieval(String userPrompt, float[] queryEmbedding, List<SearchTerm> terms) {
+    }
+
     private static final Logger log = LoggerFactory.getLogger(ChatService.class);
 
     @Value("${processing.chat.rag.max-results:200}")
@@ -52,6 +66,12 @@ public class ContextAdditionPipe {
     private int reserveCompletionTokens;
     @Value("${processing.chat.token.reserve-headroom:4000}")
     private int reserveHeadroomTokens;
+    @Value("${processing.chat.rag.scope-check-hits:26}")
+    private int scopeCheckHits;
+    @Value("${processing.chat.rag.retrieval-timeout-ms:60000}")
+    private long retrievalTimeoutMs;
+    @Value("${processing.chat.prompt-layout:CONTEXT_FIRST}")
+    private PromptLayout promptLayout;
 
     @Autowired
     private BoostTermDetector boostTermDetector;
@@ -65,28 +85,59 @@ public class ContextAdditionPipe {
     @Autowired
     private ChunkSearchService chunkSearchService;
 
+    @Autowired
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    @Autowired
+    private MemorySelector memorySelector;
+
     public List<MessageDTO> appendMemory(List<MessageDTO> springMessages, List<Integer> fingerprints, ChatEntity chatEntity) {
         List<ExtractedFactDTO> facts = userFactsService.getFacts(fingerprints);
         if ((facts != null) && (!facts.isEmpty())) {
-            try {
-                String memory = new com.fasterxml.jackson.databind.ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(facts);
-                if (!memory.isBlank()) {
-                    String prefix = (chatEntity.getDefaultMemoryPrompt() != null ? chatEntity.getDefaultMemoryPrompt().trim() : "");
-                    if (!prefix.isEmpty()) {
-                        springMessages.add(0, new MessageDTO(MessageDTO.Role.SYSTEM,(prefix + "\n" + memory)));
-                    } else {
-                        springMessages.add(0, new MessageDTO(MessageDTO.Role.SYSTEM, memory));
-                    }
+            // Only the facts relevant to the current prompt, within the memory token budget
+            String memory = memorySelector.render(facts, findUserPrompt(springMessages));
+            if (!memory.isBlank()) {
+                String prefix = (chatEntity.getDefaultMemoryPrompt() != null ? chatEntity.getDefaultMemoryPrompt().trim() : "");
+                if (!prefix.isEmpty()) {
+                    promptLayout.inject(springMessages, new MessageDTO(MessageDTO.Role.SYSTEM,(prefix + "\n" + memory)));
+                } else {
+                    promptLayout.inject(springMessages, new MessageDTO(MessageDTO.Role.SYSTEM, memory));
                 }
-            } catch (Exception e) {
-                // fallback: do not add memory if serialization fails
             }
         }
         return springMessages;
     }
 
+    /**
+     * Embeds the latest user prompt and extracts its boost terms concurrently,
+     * each on its own virtual thread, under the retrieval deadline. If either
+     * branch fails the other one is cancelled.
+     *
+     * @return The prepared retrieval, or null if there is no user prompt
+     */
+    public PreparedRetrieval prepare(List<MessageDTO> messages) throws InterruptedException, ExecutionException, TimeoutException {
+        String userPrompt = findUserPrompt(messages);
+        if (userPrompt == null || userPrompt.isBlank()) {
+            return null;
+        }
+        try (ShutdownOnFailureScope scope = new ShutdownOnFailureScope("rag-prepare")) {
+            Future<float[]> embedding = scope.fork(() -> queryEmbeddingCache.embed(userPrompt));
+            Future<List<SearchTerm>> terms = scope.fork(() -> boostTermDetector.buildSearchTerms(userPrompt, messages, 5d, 2d, 1d));
+            scope.join(getRetrievalTimeout());
+            return new PreparedRetrieval(userPrompt, embedding.resultNow(), terms.resultNow());
+        }
+    }
+
+    public Duration getRetrievalTimeout() {
+        return Duration.ofMillis(retrievalTimeoutMs);
+    }
+
     public Pair<OperationResult, List<MessageDTO>> process(List<MessageDTO> springMessages, ChatEntity chatEntity) {
-        return this.process(springMessages, chatEntity, maxContextTokens, reserveCompletionTokens, reserveHeadroomTokens, ModifyChatHistory.KEEP);
+        return this.process(springMessages, chatEntity, null);
+    }
+
+    public Pair<OperationResult, List<MessageDTO>> process(List<MessageDTO> springMessages, ChatEntity chatEntity, PreparedRetrieval prepared) {
+        return this.process(springMessages, chatEntity, maxContextTokens, reserveCompletionTokens, reserveHeadroomTokens, ModifyChatHistory.KEEP, prepared);
     }
     
     public Pair<OperationResult, List<MessageDTO>> process(List<MessageDTO> springMessages, ChatEntity chatEntity, int maxContextLength, int completionLength, int headroomLength) {
@@ -94,14 +145,11 @@ public class ContextAdditionPipe {
     }
 
     public Pair<OperationResult, List<MessageDTO>> process(List<MessageDTO> springMessages, ChatEntity chatEntity, int maxContextLenght, int completionLength, int headroomLength, ModifyChatHistory modifyChatHistory) {
-        String userPrompt = null;
-        if (springMessages != null) {
-            for (MessageDTO m : springMessages) {
-                if (MessageDTO.Role.USER.equals(m.getRole())) {
-                    userPrompt = m.getContentAsString();
-                }
-            }
-        }
+        return this.process(springMessages, chatEntity, maxContextLenght, completionLength, headroomLength, modifyChatHistory, null);
+    }
+
+    public Pair<OperationResult, List<MessageDTO>> process(List<MessageDTO> springMessages, ChatEntity chatEntity, int maxContextLenght, int completionLength, int headroomLength, ModifyChatHistory modifyChatHistory, PreparedRetrieval prepared) {
+        String userPrompt = findUserPrompt(springMessages);
 
         String context = "";
         String prefix = (chatEntity.getDefaultContextPrompt() != null ? chatEntity.getDefaultContextPrompt().trim() : "");
@@ -115,22 +163,34 @@ public class ContextAdditionPipe {
                 int size = Math.max(minNeeded, ragMaxResults);
                 log.info("[ChatService] RAG search size={} (minNeeded={}, rrfWindowSize={}, ragMaxResults={})", size, minNeeded, rrfWindowSize, ragMaxResults);
 
-                List<SearchTerm> terms = boostTermDetector.buildSearchTerms(userPrompt, springMessages, 5d, 2d, 1d);
+                // Embedding and term extraction may already have run concurrently with the chat lookup
+                PreparedRetrieval retrieval = (prepared != null && userPrompt.equals(prepared.userPrompt())) ? prepared : this.prepare(springMessages);
+                List<SearchTerm> terms = retrieval.terms();
 
                 log.info(terms.toString());
 
-                Pair<List<SearchResult<ChunkEntity>>, List<Float>> resultsWithEmbedding = chunkSearchService.hybridSearchWithEmbedding(chatEntity.getDefaultCollectionId(), userPrompt, ChunkSearchService.MatchType.MATCH, terms, size, true, null);
+                Pair<List<SearchResult<ChunkEntity>>, float[]> resultsWithEmbedding = chunkSearchService.hybridSearchWithEmbedding(chatEntity.getDefaultCollectionId(), userPrompt, retrieval.queryEmbedding(), ChunkSearchService.MatchType.MATCH, terms, size, true, null, false);
                 List<SearchResult<ChunkEntity>> results = resultsWithEmbedding.getKey();
 
-                List<List<Float>> searchResults = new ArrayList<>();
-                for (SearchResult<ChunkEntity> r : results) {
-                    searchResults.add(r.getContent().getEmbedding());
-                    if (searchResults.size() > 25) {
-                        break;
-                    }
-                }
-
                 if (springMessages.size() > 4) {
+                    // Hits come back without embeddings; fetch vectors only for the top hits the scope check looks at
+                    List<String> topIds = new ArrayList<>();
+                    for (SearchResult<ChunkEntity> r : results) {
+                        if (topIds.size() >= scopeCheckHits) {
+                            break;
+                        }
+                        if (r.getContent().getId() != null) {
+                            topIds.add(r.getContent().getId());
+                        }
+                    }
+                    Map<String, float[]> embeddings = chunkSearchService.fetchEmbeddings(chatEntity.getDefaultCollectionId(), topIds);
+                    List<float[]> searchResults = new ArrayList<>();
+                    for (String id : topIds) {
+                        float[] embedding = embeddings.get(id);
+                        if (embedding != null) {
+                            searchResults.add(embedding);
+                        }
+                    }
                     promptOutOfScope = !CosineSimilarityCalculator.isSimilar(resultsWithEmbedding.getValue(), searchResults, 0.5);
                 }
 
@@ -200,6 +260,11 @@ public class ContextAdditionPipe {
                             int documentsTagTokens = this.chatHelper.countTokens("<documents>\n</documents>\n");
                             used += documentsTagTokens;
 
+                            // Chunks carry their token count from ingestion; only the tags are tokenized here
+                            String chunkCloseTag = "</chunk>\n";
+                            int chunkCloseTagTokens = this.chatHelper.countTokens(chunkCloseTag);
+                            java.util.Map<Integer, Integer> chunkOpenTagTokens = new java.util.HashMap<>();
+
                             for (java.util.Map.Entry<String, List<SearchResult<ChunkEntity>>> entry : groupedByDocument.entrySet()) {
                                 String docName = entry.getKey();
                                 List<SearchResult<ChunkEntity>> chunks = entry.getValue();
@@ -223,8 +288,19 @@ public class ContextAdditionPipe {
                                     String normalized = t.trim();
                                     int pageNum = r.getContent().getPageNumber();
                                     String chunkOpenTag = "    <chunk page=\"" + pageNum + "\">";
-                                    String chunkCloseTag = "</chunk>\n";
-                                    int chunkTokens = this.chatHelper.countTokens(chunkOpenTag + normalized + chunkCloseTag);
+                                    Integer storedTokens = r.getContent().getTokenCount();
+                                    int chunkTokens;
+                                    if (storedTokens != null) {
+                                        chunkTokens = chunkOpenTagTokens.computeIfAbsent(pageNum, p -> this.chatHelper.countTokens(chunkOpenTag))
+                                                + storedTokens + chunkCloseTagTokens;
+                                        if (used + chunkTokens > budget) {
+                                            // Boundary chunk: the sum can differ by a token at the tag edges, count it exactly
+                                            chunkTokens = this.chatHelper.countTokens(chunkOpenTag + normalized + chunkCloseTag);
+                                        }
+                                    } else {
+                                        // Not yet backfilled by the migration
+                                        chunkTokens = this.chatHelper.countTokens(chunkOpenTag + normalized + chunkCloseTag);
+                                    }
 
                                     if (used + chunkTokens > budget) {
                                         break;
@@ -253,9 +329,9 @@ public class ContextAdditionPipe {
         // Add context as a system message if found
         if (!context.isBlank()) {
             if (!prefix.isEmpty()) {
-                springMessages.add(0, new MessageDTO(MessageDTO.Role.SYSTEM, prefix + "\n" + context));
+                promptLayout.inject(springMessages, new MessageDTO(MessageDTO.Role.SYSTEM, prefix + "\n" + context));
             } else {
-                springMessages.add(0, new MessageDTO(MessageDTO.Role.SYSTEM, context));
+                promptLayout.inject(springMessages, new MessageDTO(MessageDTO.Role.SYSTEM, context));
             }
         } else if (context.isBlank()) {
             log.info("[ChatService] No context found for prompt: '{}'. RAG enabled but no relevant chunks found.", userPrompt);
@@ -268,4 +344,16 @@ public class ContextAdditionPipe {
         }
     }
 
+    private static String findUserPrompt(List<MessageDTO> messages) {
+        String userPrompt = null;
+        if (messages != null) {
+            for (MessageDTO m : messages) {
+                if (MessageDTO.Role.USER.equals(m.getRole())) {
+                    userPrompt = m.getContentAsString();
+                }
+            }
+        }
+        return userPrompt;
+    }
+
 }
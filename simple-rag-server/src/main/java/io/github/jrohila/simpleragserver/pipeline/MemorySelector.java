@@ -0,0 +1,151 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.pipeline;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import io.github.jrohila.simpleragserver.domain.ExtractedFactDTO;
+import io.github.jrohila.simpleragserver.util.ChatHelper;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chooses which memory facts go into the prompt and renders them. Facts are
+ * ranked by how many of their terms occur in the user prompt, most recent
+ * first among equals, and taken until the top-k or the token budget is
+ * reached, so the memory section stays the same size however much the user
+ * has said. The compact JSON, token count and terms of a fact are computed
+ * once and reused in later turns.
+ *
+ * @author Jukka
+ */
+@Component
+public class MemorySelector {
+
+    private static final Logger log = LoggerFactory.getLogger(MemorySelector.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "the", "and", "for", "are", "was", "were", "you", "your", "with", "that", "this", "what", "who",
+            "how", "why", "when", "where", "which", "have", "has", "had", "not", "but", "can", "does", "did",
+            "from", "about", "into", "they", "them", "their", "there", "then", "than", "its", "our", "his", "her");
+
+    private record RenderedFact(String json, int tokens, Set<String> terms) {
+    }
+
+    private record Scored(RenderedFact fact, int order, int score) {
+    }
+
+    // Facts are replaced, never mutated, once stored (see UserFactsService) and have identity equality,
+    // so entries stay valid while a fact is in use and disappear with it
+    private final Map<ExtractedFactDTO, RenderedFact> rendered = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Autowired
+    private ChatHelper chatHelper;
+
+    @Value("${processing.chat.memory.top-k:20}")
+    private int topK;
+
+    @Value("${processing.chat.memory.max-tokens:800}")
+    private int maxTokens;
+
+    /**
+     * Renders the selected facts as {"facts":[...]}, or an empty string if
+     * there are none.
+     *
+     * @param facts stored facts, oldest first
+     * @param query the latest user prompt
+     */
+    public String render(List<ExtractedFactDTO> facts, String query) {
+        if (facts == null || facts.isEmpty()) {
+            return "";
+        }
+        Set<String> queryTerms = terms(query);
+        List<Scored> candidates = new ArrayList<>(facts.size());
+        for (int i = 0; i < facts.size(); i++) {
+            ExtractedFactDTO fact = facts.get(i);
+            if (fact == null) {
+                continue;
+            }
+            RenderedFact r = rendered.computeIfAbsent(fact, this::renderFact);
+            int score = 0;
+            for (String term : r.terms()) {
+                if (queryTerms.contains(term)) {
+                    score++;
+                }
+            }
+            candidates.add(new Scored(r, i, score));
+        }
+        candidates.sort(Comparator.comparingInt(Scored::score).reversed().thenComparing(Comparator.comparingInt(Scored::order).reversed()));
+
+        StringBuilder sb = new StringBuilder("{\"facts\":[");
+        int used = 0;
+        int selected = 0;
+        for (Scored c : candidates) {
+            if (selected >= topK) {
+                break;
+            }
+            if (used + c.fact().tokens() > maxTokens) {
+                continue;
+            }
+            if (selected > 0) {
+                sb.append(',');
+            }
+            sb.append(c.fact().json());
+            used += c.fact().tokens();
+            selected++;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("[MemorySelector] selected {} of {} facts, ~{} tokens (budget {})", selected, facts.size(), used, maxTokens);
+        }
+        if (selected == 0) {
+            return "";
+        }
+        return sb.append("]}").toString();
+    }
+
+    private RenderedFact renderFact(ExtractedFactDTO fact) {
+        String json;
+        try {
+            json = MAPPER.writeValueAsString(fact);
+        } catch (JsonProcessingException e) {
+            json = "{}";
+        }
+        Set<String> terms = new HashSet<>();
+        terms.addAll(terms(fact.getSubject()));
+        terms.addAll(terms(fact.getRelation()));
+        terms.addAll(terms(fact.getValue()));
+        terms.addAll(terms(fact.getStatement()));
+        return new RenderedFact(json, chatHelper.countTokens(json), Set.copyOf(terms));
+    }
+
+    private static Set<String> terms(String text) {
+        if (text == null || text.isBlank()) {
+            return Set.of();
+        }
+        Set<String> out = new HashSet<>();
+        for (String t : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if ((t.length() >= 3 || (!t.isEmpty() && Character.isDigit(t.charAt(0)))) && !STOPWORDS.contains(t)) {
+                out.add(t);
+            }
+        }
+        return out;
+    }
+}
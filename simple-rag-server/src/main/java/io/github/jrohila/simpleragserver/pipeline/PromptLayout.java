@@ -0,0 +1,47 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.pipeline;
+
+import io.github.jrohila.simpleragserver.dto.MessageDTO;
+import java.util.List;
+
+/**
+ * Where per-turn messages (retrieved context, memory facts) are placed in the
+ * message list sent to the LLM.
+ *
+ * CONTEXT_FIRST puts them at the very start. PREFIX_STABLE puts them right
+ * before the newest user message, so the system prompt and all earlier turns
+ * stay byte-identical from one turn to the next and the LLM server can reuse
+ * its KV cache for that prefix instead of re-reading the whole history.
+ *
+ * @author Jukka
+ */
+public enum PromptLayout {
+    CONTEXT_FIRST, PREFIX_STABLE;
+
+    /**
+     * Inserts a per-turn message according to this layout. CONTEXT_FIRST
+     * inserts at index 0, so each message lands before the ones injected
+     * earlier: injecting context and then memory gives memory, context.
+     * PREFIX_STABLE inserts right before the last user message (or appends
+     * if there is none), so messages keep the order they were injected in.
+     */
+    public void inject(List<MessageDTO> messages, MessageDTO message) {
+        if (this == CONTEXT_FIRST) {
+            messages.add(0, message);
+        } else {
+            messages.add(indexOfLastUserMessage(messages), message);
+        }
+    }
+
+    private static int indexOfLastUserMessage(List<MessageDTO> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (MessageDTO.Role.USER.equals(messages.get(i).getRole())) {
+                return i;
+            }
+        }
+        return messages.size();
+    }
+}
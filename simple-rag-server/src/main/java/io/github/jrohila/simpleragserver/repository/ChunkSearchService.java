@@ -4,7 +4,7 @@
  */
 package io.github.jrohila.simpleragserver.repository;
 
-import io.github.jrohila.simpleragserver.client.EmbeddingClientFactory;
+import io.github.jrohila.simpleragserver.client.QueryEmbeddingCache;
 import io.github.jrohila.simpleragserver.domain.ChunkEntity;
 import io.github.jrohila.simpleragserver.service.SummarizerService;
 import java.util.ArrayList;
@@ -12,18 +12,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import io.github.jrohila.simpleragserver.service.util.SearchResult;
 import io.github.jrohila.simpleragserver.service.util.SearchTerm;
+import io.github.jrohila.simpleragserver.util.VectorMath;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.List;
 import org.apache.commons.lang3.tuple.Pair;
 
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.MgetResponse;
 import org.opensearch.client.opensearch.core.SearchRequest;
 import org.opensearch.client.opensearch.core.SearchResponse;
 import org.opensearch.client.opensearch._types.query_dsl.Query;
 import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch.core.get.GetResult;
+import org.opensearch.client.opensearch.core.mget.MultiGetResponseItem;
 import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.search.SourceConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 // Note: NativeSearchQueryBuilder isn't available in this project's dependencies; we'll use StringQuery.
@@ -41,7 +48,7 @@ public class ChunkSearchService {
     private static final Logger log = LoggerFactory.getLogger(ChunkSearchService.class);
 
     @Autowired
-    private EmbeddingClientFactory embedClient;
+    private QueryEmbeddingCache queryEmbeddingCache;
 
     @Autowired
     private SummarizerService summarizerService;
@@ -57,9 +64,13 @@ public class ChunkSearchService {
     };
 
     public List<SearchResult<ChunkEntity>> vectorSearch(String collectionId, String query, List<SearchTerm> terms, int size, String language) {
+        return this.vectorSearch(collectionId, query, terms, size, language, false);
+    }
+
+    public List<SearchResult<ChunkEntity>> vectorSearch(String collectionId, String query, List<SearchTerm> terms, int size, String language, boolean includeEmbeddings) {
         try {
             // Build embedding for kNN
-            List<Float> embedding = embedClient.getDefaultClient().embedAsList(query);
+            float[] embedding = queryEmbeddingCache.embed(query);
             int k = Math.max(1, size);
 
             // Build filter queries from language and mandatory terms
@@ -97,7 +108,7 @@ public class ChunkSearchService {
             }
 
             // Build kNN query
-            Query knnQuery = Query.of(q -> q.knn(kq -> kq.field("embedding").vector(embedding).k(k)));
+            Query knnQuery = Query.of(q -> q.knn(kq -> kq.field("embedding").vector(VectorMath.asList(embedding)).k(k)));
 
             // Compose bool query: must = knn, filter = filterQueries
             Query boolQuery = Query.of(q -> q.bool(b -> b
@@ -110,6 +121,7 @@ public class ChunkSearchService {
             SearchRequest searchRequest = SearchRequest.of(b -> b
                     .index(indexName)
                     .size(size)
+                    .source(sourceConfig(includeEmbeddings))
                     .query(boolQuery)
             );
 
@@ -138,16 +150,34 @@ public class ChunkSearchService {
      * Hybrid search combining lexical and kNN.
      *
      * Notes: - enableFuzziness applies only to MATCH queries on the "text"
-     * field; others are unchanged.
+     * field; others are unchanged. - embeddings are left out of the returned
+     * chunks unless includeEmbeddings is set.
      */
     public List<SearchResult<ChunkEntity>> hybridSearch(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language) {
-        return this.hybridSearchWithEmbedding(collectionId, query, matchType, terms, size, enableFuzziness, language).getKey();
+        return this.hybridSearch(collectionId, query, matchType, terms, size, enableFuzziness, language, false);
+    }
+
+    public List<SearchResult<ChunkEntity>> hybridSearch(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language, boolean includeEmbeddings) {
+        return this.hybridSearchWithEmbedding(collectionId, query, matchType, terms, size, enableFuzziness, language, includeEmbeddings).getKey();
+    }
+
+    public Pair<List<SearchResult<ChunkEntity>>, float[]> hybridSearchWithEmbedding(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language) {
+        return this.hybridSearchWithEmbedding(collectionId, query, matchType, terms, size, enableFuzziness, language, false);
+    }
+
+    public Pair<List<SearchResult<ChunkEntity>>, float[]> hybridSearchWithEmbedding(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language, boolean includeEmbeddings) {
+        return this.hybridSearchWithEmbedding(collectionId, query, null, matchType, terms, size, enableFuzziness, language, includeEmbeddings);
     }
 
-    public Pair<List<SearchResult<ChunkEntity>>, List<Float>> hybridSearchWithEmbedding(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language) {
+    /**
+     * Hybrid search with an already computed query embedding, e.g. when the
+     * caller embedded the query concurrently with other preparation. A null
+     * queryEmbedding is computed here.
+     */
+    public Pair<List<SearchResult<ChunkEntity>>, float[]> hybridSearchWithEmbedding(String collectionId, String query, float[] queryEmbedding, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language, boolean includeEmbeddings) {
         try {
             // Build embedding for kNN
-            List<Float> embedding = embedClient.getDefaultClient().embedAsList(query);
+            float[] embedding = queryEmbedding != null ? queryEmbedding : queryEmbeddingCache.embed(query);
             int k = Math.max(1, size);
 
             // Build lexical clause as an OpenSearch Query using the selected matchType
@@ -217,7 +247,7 @@ public class ChunkSearchService {
             }
 
             // Build knn query
-            Query knnQuery = Query.of(q -> q.knn(kq -> kq.field("embedding").vector(embedding).k(k)));
+            Query knnQuery = Query.of(q -> q.knn(kq -> kq.field("embedding").vector(VectorMath.asList(embedding)).k(k)));
 
             // Compose should clause: matchQuery, knnQuery, shouldBoostQueries
             List<Query> shouldQueries = new ArrayList<>();
@@ -234,6 +264,7 @@ public class ChunkSearchService {
                     .index(indexName)
                     .pipeline("rrf-pipeline")
                     .size(size)
+                    .source(sourceConfig(includeEmbeddings))
                     .query(q -> q.bool(bb -> bb
                     .should(shouldQueries)
                     .filter(filterQueries)
@@ -257,6 +288,10 @@ public class ChunkSearchService {
     }
 
     public List<SearchResult<ChunkEntity>> lexicalSearch(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language) {
+        return this.lexicalSearch(collectionId, query, matchType, terms, size, enableFuzziness, language, false);
+    }
+
+    public List<SearchResult<ChunkEntity>> lexicalSearch(String collectionId, String query, MatchType matchType, List<SearchTerm> terms, int size, boolean enableFuzziness, String language, boolean includeEmbeddings) {
         try {
             // 1) Build base lexical clause as Query
             Query baseTextQuery;
@@ -346,6 +381,7 @@ public class ChunkSearchService {
             SearchRequest searchRequest = SearchRequest.of(b -> b
                     .index(indexName)
                     .size(size)
+                    .source(sourceConfig(includeEmbeddings))
                     .query(boolQuery)
             );
 
@@ -358,12 +394,56 @@ public class ChunkSearchService {
         }
     }
 
+    /**
+     * Fetches only the embedding vectors of the given chunks.
+     *
+     * @return Map of chunk id to embedding, chunks that were not found or have
+     * no embedding are missing from the map
+     */
+    public Map<String, float[]> fetchEmbeddings(String collectionId, List<String> ids) {
+        Map<String, float[]> embeddings = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return embeddings;
+        }
+        try {
+            String indexName = this.indicesManager.createIfNotExist(collectionId, ChunkEntity.class);
+            MgetResponse<ChunkEntity> resp = openSearchClient.mget(m -> m
+                    .index(indexName)
+                    .ids(ids)
+                    .sourceIncludes("embedding"),
+                    ChunkEntity.class);
+            for (MultiGetResponseItem<ChunkEntity> item : resp.docs()) {
+                if (!item.isResult()) {
+                    continue;
+                }
+                GetResult<ChunkEntity> doc = item.result();
+                if (doc.found() && doc.source() != null && doc.source().getEmbedding() != null) {
+                    embeddings.put(doc.id(), doc.source().getEmbedding());
+                }
+            }
+            return embeddings;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch chunk embeddings", e);
+        }
+    }
+
+    private static SourceConfig sourceConfig(boolean includeEmbeddings) {
+        if (includeEmbeddings) {
+            return SourceConfig.of(s -> s.fetch(true));
+        }
+        return SourceConfig.of(s -> s.filter(f -> f.excludes("embedding")));
+    }
+
     private List<SearchResult<ChunkEntity>> processSearchResponse(SearchResponse<ChunkEntity> response) {
         List<SearchResult<ChunkEntity>> results = new ArrayList<>();
 
         for (Hit<ChunkEntity> hit : response.hits().hits()) {
             SearchResult<ChunkEntity> result = new SearchResult();
-            result.setContent(hit.source());
+            ChunkEntity chunk = hit.source();
+            if (chunk != null && chunk.getId() == null) {
+                chunk.setId(hit.id());
+            }
+            result.setContent(chunk);
             result.setScore(hit.score());
             results.add(result);
         }
@@ -2,14 +2,22 @@ package io.github.jrohila.simpleragserver.repository;
 
 import io.github.jrohila.simpleragserver.client.EmbeddingClientFactory;
 import io.github.jrohila.simpleragserver.domain.ChunkEntity;
+import io.github.jrohila.simpleragserver.util.ChatHelper;
 // Removed ChunkRepository import
 import org.apache.commons.codec.digest.DigestUtils;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.BulkRequest;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 // Removed Spring Data imports
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -23,6 +31,26 @@ public class ChunkService {
 
     private final int embeddingDim;
 
+    @Value("${chunks.bulk.max-bytes:5242880}")
+    private long bulkMaxBytes;
+
+    @Value("${chunks.bulk.max-docs:500}")
+    private int bulkMaxDocs;
+
+    public enum BulkItemStatus {
+        CREATED, UPDATED, DUPLICATE, INVALID, FAILED
+    }
+
+    /**
+     * Result of a single chunk in a bulk call, in the same order as the input.
+     */
+    public record BulkItemResult(String id, BulkItemStatus status, String error) {
+
+        public boolean isSuccess() {
+            return status == BulkItemStatus.CREATED || status == BulkItemStatus.UPDATED;
+        }
+    }
+
     @Autowired
     public ChunkService(@Value("${chunks.dimension-size}") int embeddingDim) {
         this.embeddingDim = embeddingDim;
@@ -30,6 +58,17 @@ public class ChunkService {
 
     @Autowired
     private EmbeddingClientFactory embedService;
+
+    @Autowired
+    private ChatHelper chatHelper;
+
+    /**
+     * Token count stored on a chunk: tokens of the trimmed text, i.e. what the
+     * context packer puts between the chunk tags.
+     */
+    public int computeTokenCount(String text) {
+        return chatHelper.countTokens(text == null ? null : text.trim());
+    }
     
     public ChunkEntity create(String collectionId, ChunkEntity chunk) {
         String now = java.time.Instant.now().toString();
@@ -41,6 +80,9 @@ public class ChunkService {
             chunk.setId(chunk.getDocumentId() + ":" + newHash);
         }
         validateEmbedding(chunk);
+        if (chunk.getTokenCount() == null) {
+            chunk.setTokenCount(computeTokenCount(chunk.getText()));
+        }
         // Check for existing chunk with same hash
         var existing = findFirstByHash(collectionId, newHash);
         if (existing.isPresent()) {
@@ -63,6 +105,114 @@ public class ChunkService {
         }
     }
 
+    /**
+     * Creates chunks with the _bulk API using op_type=create. Ids are derived
+     * from documentId + hash, so a chunk that already exists is rejected by
+     * OpenSearch and reported as DUPLICATE instead of searching by hash first.
+     * Chunks are embedded already; invalid embeddings are reported as INVALID
+     * and not sent.
+     */
+    public List<BulkItemResult> createAll(String collectionId, List<ChunkEntity> chunks) {
+        return this.bulk(collectionId, chunks, true);
+    }
+
+    /**
+     * Creates or overwrites chunks with the _bulk API using op_type=index and
+     * the same deterministic documentId + hash ids as createAll.
+     */
+    public List<BulkItemResult> upsertAll(String collectionId, List<ChunkEntity> chunks) {
+        return this.bulk(collectionId, chunks, false);
+    }
+
+    private List<BulkItemResult> bulk(String collectionId, List<ChunkEntity> chunks, boolean createOnly) {
+        BulkItemResult[] results = new BulkItemResult[chunks.size()];
+        String now = java.time.Instant.now().toString();
+        String indexName;
+        try {
+            indexName = indicesManager.createIfNotExist(collectionId, ChunkEntity.class);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to bulk index chunks", e);
+        }
+
+        List<Integer> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            ChunkEntity chunk = chunks.get(i);
+            String hash = computeHash(chunk.getText(), chunk.getSectionTitle());
+            chunk.setHash(hash);
+            if ((chunk.getId() == null || chunk.getId().isBlank()) && chunk.getDocumentId() != null) {
+                chunk.setId(chunk.getDocumentId() + ":" + hash);
+            }
+            try {
+                validateEmbedding(chunk);
+            } catch (IllegalArgumentException e) {
+                results[i] = new BulkItemResult(chunk.getId(), BulkItemStatus.INVALID, e.getMessage());
+                continue;
+            }
+            if (chunk.getTokenCount() == null) {
+                chunk.setTokenCount(computeTokenCount(chunk.getText()));
+            }
+            if (chunk.getCreated() == null) {
+                chunk.setCreated(now);
+            }
+            chunk.setModified(now);
+
+            long size = estimateSize(chunk);
+            if (!batch.isEmpty() && (batch.size() >= bulkMaxDocs || batchBytes + size > bulkMaxBytes)) {
+                this.executeBulk(indexName, chunks, batch, createOnly, results);
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(i);
+            batchBytes += size;
+        }
+        if (!batch.isEmpty()) {
+            this.executeBulk(indexName, chunks, batch, createOnly, results);
+        }
+        return List.of(results);
+    }
+
+    private void executeBulk(String indexName, List<ChunkEntity> chunks, List<Integer> batch, boolean createOnly, BulkItemResult[] results) {
+        List<BulkOperation> operations = new ArrayList<>(batch.size());
+        for (int idx : batch) {
+            ChunkEntity chunk = chunks.get(idx);
+            if (createOnly) {
+                operations.add(BulkOperation.of(op -> op.create(c -> c.id(chunk.getId()).document(chunk))));
+            } else {
+                operations.add(BulkOperation.of(op -> op.index(c -> c.id(chunk.getId()).document(chunk))));
+            }
+        }
+        BulkResponse resp;
+        try {
+            resp = openSearchClient.bulk(BulkRequest.of(b -> b.index(indexName).operations(operations)));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to bulk index chunks", e);
+        }
+        List<BulkResponseItem> items = resp.items();
+        for (int n = 0; n < batch.size(); n++) {
+            int idx = batch.get(n);
+            BulkResponseItem item = items.get(n);
+            if (item.error() == null) {
+                BulkItemStatus status = "updated".equalsIgnoreCase(item.result()) ? BulkItemStatus.UPDATED : BulkItemStatus.CREATED;
+                chunks.get(idx).setId(item.id());
+                results[idx] = new BulkItemResult(item.id(), status, null);
+            } else if (item.status() == 409) {
+                results[idx] = new BulkItemResult(item.id(), BulkItemStatus.DUPLICATE, item.error().reason());
+            } else {
+                results[idx] = new BulkItemResult(item.id(), BulkItemStatus.FAILED, item.error().type() + ": " + item.error().reason());
+            }
+        }
+    }
+
+    private long estimateSize(ChunkEntity chunk) {
+        long size = 256; // action line and metadata fields
+        size += chunk.getText() == null ? 0 : chunk.getText().getBytes(StandardCharsets.UTF_8).length;
+        size += chunk.getSectionTitle() == null ? 0 : chunk.getSectionTitle().getBytes(StandardCharsets.UTF_8).length;
+        size += chunk.getDocumentName() == null ? 0 : chunk.getDocumentName().getBytes(StandardCharsets.UTF_8).length;
+        size += chunk.getEmbedding() == null ? 0 : 12L * chunk.getEmbedding().length; // JSON float text
+        return size;
+    }
+
     public Optional<ChunkEntity> getById(String collectionId, String id) {
         try {
             String indexName = indicesManager.createIfNotExist(collectionId, ChunkEntity.class);
@@ -120,7 +270,8 @@ public class ChunkService {
         }
         chunk.setId(id);
         chunk.setHash(newHash);
-        chunk.setEmbedding(this.embedService.getDefaultClient().embedAsList(chunk.getText()));
+        chunk.setEmbedding(this.embedService.getDefaultClient().embed(chunk.getText()));
+        chunk.setTokenCount(computeTokenCount(chunk.getText()));
         if (chunk.getCreated() == null) {
             chunk.setCreated(now);
         }
@@ -197,15 +348,15 @@ public class ChunkService {
     }
 
     private void validateEmbedding(ChunkEntity chunk) {
-        var emb = chunk.getEmbedding();
+        float[] emb = chunk.getEmbedding();
         if (emb == null) {
             throw new IllegalArgumentException("Chunk embedding is required");
         }
-        if (emb.size() != embeddingDim) {
-            throw new IllegalArgumentException("Embedding dimension mismatch: expected " + embeddingDim + " but got " + emb.size());
+        if (emb.length != embeddingDim) {
+            throw new IllegalArgumentException("Embedding dimension mismatch: expected " + embeddingDim + " but got " + emb.length);
         }
-        for (Float v : emb) {
-            if (v == null || v.isNaN() || v.isInfinite()) {
+        for (int i = 0; i < emb.length; i++) {
+            if (!Float.isFinite(emb[i])) {
                 throw new IllegalArgumentException("Embedding contains invalid values");
             }
         }
@@ -17,6 +17,7 @@ import java.util.Optional;
 
 import io.github.jrohila.simpleragserver.domain.DocumentEntity;
 import io.github.jrohila.simpleragserver.repository.DocumentService;
+import io.github.jrohila.simpleragserver.service.EventPublisherService;
 
 @Service
 public class CollectionService {
@@ -31,6 +32,9 @@ public class CollectionService {
     @Autowired
     private DocumentService documentService;
 
+    @Autowired
+    private EventPublisherService eventPublisherService;
+
     public CollectionEntity create(CollectionEntity collection) {
         if (collection.getId() == null || collection.getId().isBlank()) {
             collection.setId(java.util.UUID.randomUUID().toString());
@@ -110,6 +114,7 @@ public class CollectionService {
             }
             String indexName = indicesManager.createIfNotExist(null, CollectionEntity.class);
             openSearchClient.delete(DeleteRequest.of(d -> d.index(indexName).id(id)));
+            eventPublisherService.publishCollectionDeleteEvent(id);
             return true;
         } catch (Exception e) {
             throw new RuntimeException("Failed to delete collection by id", e);
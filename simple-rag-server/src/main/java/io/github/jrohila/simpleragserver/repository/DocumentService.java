@@ -3,6 +3,7 @@ package io.github.jrohila.simpleragserver.repository;
 import io.github.jrohila.simpleragserver.domain.DocumentEntity;
 import io.github.jrohila.simpleragserver.domain.DocumentEntity.ProcessingState;
 import io.github.jrohila.simpleragserver.service.EventPublisherService;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -10,6 +11,9 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -101,15 +105,8 @@ public class DocumentService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File is required");
         }
 
-        String hash = DigestUtils.sha256Hex(file.getInputStream());
-        if (findByHash(collectionId, hash).isPresent()) {
-            throw new ResponseStatusException(HttpStatus.CONFLICT, "Document with the same hash already exists");
-        }
-
         String now = java.time.Instant.now().toString();
         DocumentEntity doc = new DocumentEntity();
-        // Only set fields that exist on DocumentEntity
-        doc.setHash(hash);
         // Set id to a random UUID
         doc.setId(java.util.UUID.randomUUID().toString());
         if (file.getOriginalFilename() != null) {
@@ -125,8 +122,26 @@ public class DocumentService {
         doc.setCreatedTime(now);
         doc.setUpdatedTime(now);
 
-        // Persist content and metadata
-        contentStore.setContent(doc, file.getInputStream());
+        // Store content and compute the hash in the same pass over the upload stream
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            contentStore.setContent(doc, in);
+        }
+        String hash = Hex.encodeHexString(digest.digest());
+        boolean duplicate;
+        try {
+            duplicate = findByHash(collectionId, hash).isPresent();
+        } catch (RuntimeException e) {
+            contentStore.unsetContent(doc);
+            throw e;
+        }
+        if (duplicate) {
+            contentStore.unsetContent(doc);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Document with the same hash already exists");
+        }
+        doc.setHash(hash);
+
+        // Persist metadata
         indexDocument(collectionId, doc);
 
         this.eventPublisherService.publishDocumentUploadEvent(collectionId, doc.getId());
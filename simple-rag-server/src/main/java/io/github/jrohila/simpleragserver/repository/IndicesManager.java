@@ -9,15 +9,21 @@ import io.github.jrohila.simpleragserver.domain.ChatEntity;
 import io.github.jrohila.simpleragserver.domain.ChunkEntity;
 import io.github.jrohila.simpleragserver.domain.ChunkingTaskEntity;
 import io.github.jrohila.simpleragserver.domain.DocumentEntity;
-import io.github.jrohila.simpleragserver.startup.OpenSearchSetup;
-import java.util.HashSet;
+import io.github.jrohila.simpleragserver.domain.UserFactsEntity;
+import io.github.jrohila.simpleragserver.event.CollectionDeleteEvent;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.cat.indices.IndicesRecord;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.transport.endpoints.BooleanResponse;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 /**
@@ -37,11 +43,76 @@ public class IndicesManager {
     @Value("${chunks.similarity-function}")
     private String similarity; // cosinesimil | l2 | innerproduct
 
-    private final Set<String> existingIndices = new HashSet<>();
+    // Index names known to exist in OpenSearch. Only positive results are cached,
+    // a missing index is re-checked (and created) on the next call.
+    private final Set<String> existingIndices = ConcurrentHashMap.newKeySet();
+
+    // Per index creation locks so concurrent first callers don't race on exists/create.
+    // ReentrantLock instead of synchronized to avoid pinning virtual threads during I/O.
+    private final ConcurrentHashMap<String, ReentrantLock> creationLocks = new ConcurrentHashMap<>();
 
     public IndicesManager(OpenSearchClient client) {
         this.client = client;
     }
+
+    /**
+     * Loads the names of all indices currently in OpenSearch into the registry
+     * with a single _cat/indices call. Called once at startup after OpenSearch
+     * is reachable.
+     *
+     * @return number of indices registered
+     */
+    public int loadExistingIndices() throws Exception {
+        int count = 0;
+        for (IndicesRecord record : client.cat().indices().valueBody()) {
+            if (record.index() != null) {
+                existingIndices.add(record.index());
+                count++;
+            }
+        }
+        LOGGER.log(Level.INFO, "IndicesManager: registered {0} existing indices", count);
+        return count;
+    }
+
+    /**
+     * Drops all registry entries belonging to a deleted collection so that the
+     * next access re-checks (and if needed re-creates) the collection indices.
+     */
+    @EventListener
+    public void handleCollectionDelete(CollectionDeleteEvent event) {
+        this.invalidateCollection(event.getCollectionId());
+    }
+
+    public void invalidateCollection(String collectionId) {
+        if (collectionId == null) {
+            return;
+        }
+        String prefix = (collectionId + ".").toLowerCase();
+        existingIndices.removeIf(name -> name.startsWith(prefix));
+        creationLocks.keySet().removeIf(name -> name.startsWith(prefix));
+        LOGGER.log(Level.FINE, "IndicesManager: invalidated indices of collection {0}", collectionId);
+    }
+
+    /**
+     * Names of all existing indices of the given type, across all collections.
+     */
+    public List<String> findIndices(Class<?> type) throws Exception {
+        String typeName = type.getTypeName().toLowerCase();
+        List<String> result = new ArrayList<>();
+        for (IndicesRecord record : client.cat().indices().valueBody()) {
+            String name = record.index();
+            if (name != null && (name.equals(typeName) || name.endsWith("." + typeName))) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(String indexName) {
+        if (indexName != null) {
+            existingIndices.remove(indexName.toLowerCase());
+        }
+    }
     
     public String createIfNotExist(Class<?> type) throws Exception {
         return this.createIfNotExist(null, type);
@@ -49,16 +120,27 @@ public class IndicesManager {
 
     public String createIfNotExist(String collectionId, Class<?> type) throws Exception {
         String indexName = this.getIndexName(collectionId, type);
-        if (!existingIndices.contains(indexName)) {
-            if (DocumentEntity.class.equals(type)) {
-                this.createDocumentsIndex(collectionId);
-            } else if (ChunkEntity.class.equals(type)) {
-                this.createChunksIndex(collectionId);
-            } else if (ChatEntity.class.equals(type)) {
-                this.createChatIndex();
-            } else if (ChunkingTaskEntity.class.equals(type)) {
-                this.createChunkingTaskIndex();
+        if (existingIndices.contains(indexName)) {
+            return indexName;
+        }
+        ReentrantLock lock = creationLocks.computeIfAbsent(indexName, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            if (!existingIndices.contains(indexName)) {
+                if (DocumentEntity.class.equals(type)) {
+                    this.createDocumentsIndex(collectionId);
+                } else if (ChunkEntity.class.equals(type)) {
+                    this.createChunksIndex(collectionId);
+                } else if (ChatEntity.class.equals(type)) {
+                    this.createChatIndex();
+                } else if (ChunkingTaskEntity.class.equals(type)) {
+                    this.createChunkingTaskIndex();
+                } else if (UserFactsEntity.class.equals(type)) {
+                    this.createUserFactsIndex();
+                }
             }
+        } finally {
+            lock.unlock();
         }
         return indexName;
     }
@@ -69,6 +151,7 @@ public class IndicesManager {
         BooleanResponse exists = client.indices().exists(b -> b.index(indexName));
         if (exists.value()) {
             LOGGER.log(Level.FINEST, "OpenSearchSetup: index already exists: {0}", indexName);
+            this.existingIndices.add(indexName);
             return;
         }
 
@@ -121,6 +204,7 @@ public class IndicesManager {
         BooleanResponse exists = client.indices().exists(b -> b.index(indexName));
         if (exists.value()) {
             LOGGER.log(Level.FINEST, "OpenSearchSetup: index already exists: {0}", indexName);
+            this.existingIndices.add(indexName);
             return;
         }
 
@@ -146,6 +230,37 @@ public class IndicesManager {
         LOGGER.log(Level.INFO, "OpenSearchSetup: created chunking task index {0}", indexName);
     }
 
+    private void createUserFactsIndex() throws Exception {
+        String indexName = this.getIndexName(null, UserFactsEntity.class);
+
+        BooleanResponse exists = client.indices().exists(b -> b.index(indexName));
+        if (exists.value()) {
+            LOGGER.log(Level.FINEST, "OpenSearchSetup: index already exists: {0}", indexName);
+            this.existingIndices.add(indexName);
+            return;
+        }
+
+        CreateIndexRequest req = new CreateIndexRequest.Builder()
+                .index(indexName)
+                .settings(s -> s.index(i -> i
+                .numberOfShards(1)
+                .numberOfReplicas(0)
+        ))
+                .mappings(m -> m
+                .properties("id", p -> p.keyword(k -> k))
+                .properties("tokens", p -> p.integer(n -> n))
+                // Facts are only stored and loaded, never searched
+                .properties("facts", p -> p.object(o -> o.enabled(false)))
+                .properties("created", p -> p.date(d -> d))
+                .properties("modified", p -> p.date(d -> d))
+                )
+                .build();
+
+        client.indices().create(req);
+        this.existingIndices.add(indexName);
+        LOGGER.log(Level.INFO, "OpenSearchSetup: created user facts index {0}", indexName);
+    }
+
     /**
      * Creates the documents index using the mapping from DocumentEntity.
      */
@@ -155,6 +270,7 @@ public class IndicesManager {
         BooleanResponse exists = client.indices().exists(b -> b.index(indexName));
         if (exists.value()) {
             LOGGER.log(Level.FINEST, "OpenSearchSetup: index already exists: {0}", indexName);
+            this.existingIndices.add(indexName);
             return;
         }
 
@@ -202,6 +318,7 @@ public class IndicesManager {
         BooleanResponse exists = client.indices().exists(b -> b.index(indexName));
         if (exists.value()) {
             LOGGER.log(Level.FINEST, "OpenSearchSetup: index already exists: {0}", indexName);
+            this.existingIndices.add(indexName);
             return;
         }
 
@@ -225,6 +342,7 @@ public class IndicesManager {
                 .properties("created", p -> p.date(d -> d))
                 .properties("modified", p -> p.date(d -> d))
                 .properties("documentId", p -> p.keyword(k -> k))
+                .properties("tokenCount", p -> p.integer(n -> n))
                 .properties("embedding", p -> p.knnVector(k -> k
                 .dimension(embeddingDim)
                 .method(me -> me
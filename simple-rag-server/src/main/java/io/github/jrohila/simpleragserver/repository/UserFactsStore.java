@@ -0,0 +1,98 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.repository;
+
+import io.github.jrohila.simpleragserver.domain.UserFactsEntity;
+import java.util.ArrayList;
+import java.util.List;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.springframework.stereotype.Service;
+
+/**
+ * Persistent tier of the user facts memory: one document per conversation
+ * in the user facts index.
+ *
+ * @author Jukka
+ */
+@Service
+public class UserFactsStore {
+
+    // Default index.max_result_window
+    private static final int MAX_LOAD = 10000;
+
+    private final OpenSearchClient client;
+    private final IndicesManager indicesManager;
+
+    public UserFactsStore(OpenSearchClient client, IndicesManager indicesManager) {
+        this.client = client;
+        this.indicesManager = indicesManager;
+    }
+
+    public void save(UserFactsEntity entity) {
+        try {
+            String indexName = indicesManager.createIfNotExist(UserFactsEntity.class);
+            client.index(i -> i
+                    .index(indexName)
+                    .id(entity.getId())
+                    .document(entity)
+            );
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to save user facts", e);
+        }
+    }
+
+    /**
+     * The most recently modified conversation with any of the tokens, or null.
+     */
+    public UserFactsEntity findByTokens(List<Integer> tokens) {
+        try {
+            String indexName = indicesManager.createIfNotExist(UserFactsEntity.class);
+            List<FieldValue> values = new ArrayList<>();
+            for (Integer token : tokens) {
+                if (token != null) {
+                    values.add(FieldValue.of(token));
+                }
+            }
+            SearchResponse<UserFactsEntity> resp = client.search(s -> s
+                    .index(indexName)
+                    .size(1)
+                    .sort(so -> so.field(f -> f.field("modified").order(SortOrder.Desc)))
+                    .query(q -> q.terms(t -> t.field("tokens").terms(tv -> tv.value(values)))),
+                    UserFactsEntity.class);
+            List<Hit<UserFactsEntity>> hits = resp.hits().hits();
+            return hits.isEmpty() ? null : hits.get(0).source();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to find user facts", e);
+        }
+    }
+
+    /**
+     * Most recently modified conversations first.
+     */
+    public List<UserFactsEntity> findRecent(int max) {
+        try {
+            String indexName = indicesManager.createIfNotExist(UserFactsEntity.class);
+            SearchResponse<UserFactsEntity> resp = client.search(s -> s
+                    .index(indexName)
+                    .size(Math.max(0, Math.min(max, MAX_LOAD)))
+                    .sort(so -> so.field(f -> f.field("modified").order(SortOrder.Desc)))
+                    .query(q -> q.matchAll(m -> m)),
+                    UserFactsEntity.class);
+            List<UserFactsEntity> result = new ArrayList<>();
+            for (Hit<UserFactsEntity> hit : resp.hits().hits()) {
+                if (hit.source() != null) {
+                    result.add(hit.source());
+                }
+            }
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to load user facts", e);
+        }
+    }
+}
@@ -1,15 +1,23 @@
 package io.github.jrohila.simpleragserver.service;
 
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.lang3.tuple.Pair;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,12 +33,107 @@ import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.model.output.Response;
 
+/**
+ * Extracts user facts from the latest user message after a streamed answer
+ * completes. The extraction LLM call runs on a bounded pool of background
+ * workers, so the streaming thread is released as soon as the job is queued.
+ * - When the queue is full, new jobs are dropped. With COALESCE, a message
+ *   whose previous turn is still waiting in the queue is merged into that
+ *   job instead, so a backlog costs one LLM call per conversation rather
+ *   than one per message. Turns are linked by the rolling fingerprints of
+ *   TokenGenerator.
+ * - Stream contexts are kept until the stream completes or is cancelled,
+ *   and at most for the configured TTL / number of entries.
+ */
 @Service
 public class ChatResponsePostProcessor implements ChatStreamConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(ChatResponsePostProcessor.class);
 
-    public Map<String, Pair<List<MessageDTO>, List<Integer>>> contexts = new HashMap<>();
+    public static enum OverflowPolicy {
+        DROP, COALESCE
+    }
+
+    public record Stats(int workers, int queueCapacity, int queueDepth, int activeJobs, long submitted, long completed,
+            long failed, long dropped, long coalesced, long lastLagMillis, long maxLagMillis, int contexts) {
+    }
+
+    private record StoredContext(List<MessageDTO> messages, List<Integer> tokens, long createdAt) {
+    }
+
+    /**
+     * One fact extraction. While still queued, the next user messages of the
+     * same conversation can be merged into it; they are extracted together
+     * and stored under the newest fingerprints.
+     */
+    private final class ExtractionJob implements Runnable {
+
+        private final long enqueuedAt = System.nanoTime();
+        private final List<String> userTexts = new ArrayList<>();
+        private List<Integer> tokens;
+        private boolean started;
+
+        private ExtractionJob(String userText, List<Integer> tokens) {
+            this.userTexts.add(userText);
+            this.tokens = tokens;
+        }
+
+        /** @return false if the job already started and must not be changed */
+        private synchronized boolean merge(String userText, List<Integer> newerTokens) {
+            if (started) {
+                return false;
+            }
+            userTexts.add(userText);
+            tokens = newerTokens;
+            return true;
+        }
+
+        private synchronized boolean isStarted() {
+            return started;
+        }
+
+        @Override
+        public void run() {
+            List<String> texts;
+            List<Integer> jobTokens;
+            synchronized (this) {
+                started = true;
+                texts = List.copyOf(userTexts);
+                jobTokens = tokens;
+            }
+            if (!jobTokens.isEmpty()) {
+                pendingByFingerprint.remove(jobTokens.get(0), this);
+            }
+            long lag = (System.nanoTime() - enqueuedAt) / 1_000_000L;
+            lastLagMillis.set(lag);
+            maxLagMillis.accumulateAndGet(lag, Math::max);
+            try {
+                extractFacts(String.join("\n\n", texts), jobTokens);
+                completed.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                log.warn("[PostProcessor] Fact extraction failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private final Map<String, StoredContext> contexts = new ConcurrentHashMap<>();
+    // Queued jobs by their newest fingerprint (tokens[0]); the next turn of the conversation has it as tokens[1]
+    private final Map<Integer, ExtractionJob> pendingByFingerprint = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor executor;
+    private final int workers;
+    private final int queueCapacity;
+    private final OverflowPolicy overflowPolicy;
+    private final Duration contextTtl;
+    private final int maxContexts;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong lastLagMillis = new AtomicLong();
+    private final AtomicLong maxLagMillis = new AtomicLong();
 
     @Autowired(required = false)
     private LlmClientFactory llmClientFactory;
@@ -44,8 +147,47 @@ public class ChatResponsePostProcessor implements ChatStreamConsumer {
     @Value("${processing.post.chat.fact.extractor.append:}")
     private String factExtractorTemplate;
 
+    public ChatResponsePostProcessor(
+            @Value("${processing.post.chat.workers:2}") int workers,
+            @Value("${processing.post.chat.queue-capacity:100}") int queueCapacity,
+            @Value("${processing.post.chat.overflow-policy:COALESCE}") OverflowPolicy overflowPolicy,
+            @Value("${processing.post.chat.contexts.ttl-seconds:900}") int contextTtlSeconds,
+            @Value("${processing.post.chat.contexts.max-entries:1000}") int maxContexts) {
+        this.workers = Math.max(1, workers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.overflowPolicy = overflowPolicy;
+        this.contextTtl = Duration.ofSeconds(contextTtlSeconds);
+        this.maxContexts = maxContexts;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.workers, this.workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.queueCapacity), r -> {
+                    Thread t = new Thread(r, "post-processor-" + counter.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
     public void addContext(String streamId, List<MessageDTO> messages, List<Integer> tokens) {
-        contexts.put(streamId, Pair.of(messages, tokens));
+        if (contexts.size() >= maxContexts) {
+            this.evictExpiredContexts();
+            if (contexts.size() >= maxContexts) {
+                contexts.entrySet().stream()
+                        .min((a, b) -> Long.compare(a.getValue().createdAt(), b.getValue().createdAt()))
+                        .ifPresent(e -> contexts.remove(e.getKey(), e.getValue()));
+            }
+        }
+        contexts.put(streamId, new StoredContext(messages, tokens, System.nanoTime()));
+    }
+
+    @Scheduled(fixedDelayString = "${processing.post.chat.contexts.eviction-interval-ms:60000}")
+    public void evictExpiredContexts() {
+        long now = System.nanoTime();
+        int before = contexts.size();
+        contexts.entrySet().removeIf(e -> now - e.getValue().createdAt() >= contextTtl.toNanos());
+        int evicted = before - contexts.size();
+        if (evicted > 0) {
+            log.debug("[PostProcessor] Evicted {} expired stream contexts", evicted);
+        }
     }
 
     @Override
@@ -54,73 +196,123 @@ public class ChatResponsePostProcessor implements ChatStreamConsumer {
         }
     }
 
+    @Override
+    public void onCancel(String streamId) {
+        if (contexts.remove(streamId) != null) {
+            log.debug("[PostProcessor] {} cancelled, skipping fact extraction", streamId);
+        }
+    }
+
     @Override
     public void onComplete(String streamId, String fullResponse) {
+        StoredContext context = contexts.remove(streamId);
         if (fullResponse == null) {
             log.debug("[StreamCapture] {} complete (empty response)", streamId);
-        } else {
-            Pair<List<MessageDTO>, List<Integer>> context = contexts.get(streamId);
-            if (context != null) {
-                List<MessageDTO> original = context.getLeft();
-                List<MessageDTO> reversed = new ArrayList<>(original);
-                Collections.reverse(reversed);
-                for (MessageDTO message : reversed) {
-                    if (MessageDTO.Role.USER.equals(message.getRole())) {
-                        String userText = message.getContentAsString();
-                        log.info("[PostProcessor] Latest USER message: {}", userText);
-
-                        // Build system prompt from template if available
-                        if (factExtractorTemplate == null || factExtractorTemplate.isBlank()) {
-                            log.debug("[PostProcessor] fact extractor template is blank, property processing.post.chat.fact.extractor.append");
-                            break;
-                        }
-                        String systemPrompt = factExtractorTemplate.replace("{{user_message}}", userText == null ? "" : userText);
-
-                        // Get default LLM client
-                        LlmClient client = null;
-                        try {
-                            client = llmClientFactory.getDefaultClient();
-                        } catch (Exception e) {
-                            log.debug("[PostProcessor] No LLM client available: {}", e.getMessage());
-                        }
-                        if (client == null) {
-                            log.debug("[PostProcessor] LlmClient not available, skipping fact extraction");
-                            break;
-                        }
-
-                        try {
-                            List<ChatMessage> msgs = List.of(new SystemMessage(systemPrompt));
-                            LlmRequestOptions opts = LlmRequestOptions.defaults();
-                            Response<String> resp = client.chat(msgs, opts);
-                            String assistantOut = resp != null && resp.content() != null ? resp.content() : "";
-                            log.info("[PostProcessor] Fact extractor response: {}", assistantOut);
-
-                            assistantOut = LlmOutputCleaner.getJson(assistantOut);
-                            
-                            // Parse assistantOut JSON into ExtractedFactDTO(s) and update facts
-                            List<ExtractedFactDTO> parsedFacts = parseFactsFromJson(assistantOut);
-                            if (parsedFacts != null && !parsedFacts.isEmpty()) {
-                                List<Integer> tokens = context.getRight();
-                                if (userFactsService != null) {
-                                    userFactsService.updateFacts(parsedFacts, tokens);
-                                    log.info("[PostProcessor] Parsed {} fact(s) and updated UserFactsService", parsedFacts.size());
-                                } else {
-                                    log.debug("[PostProcessor] UserFactsService not available; parsed facts not stored");
-                                }
-                            } else {
-                                log.debug("[PostProcessor] No valid facts parsed from assistant output");
-                            }
-                        } catch (Exception e) {
-                            log.warn("[PostProcessor] Fact extractor call failed: {}", e.getMessage());
-                        }
-                        break;
-                    }
+            return;
+        }
+        if (context == null) {
+            return;
+        }
+        // Build system prompt from template if available
+        if (factExtractorTemplate == null || factExtractorTemplate.isBlank()) {
+            log.debug("[PostProcessor] fact extractor template is blank, property processing.post.chat.fact.extractor.append");
+            return;
+        }
+        String userText = null;
+        List<MessageDTO> reversed = new ArrayList<>(context.messages());
+        Collections.reverse(reversed);
+        for (MessageDTO message : reversed) {
+            if (MessageDTO.Role.USER.equals(message.getRole())) {
+                userText = message.getContentAsString();
+                break;
+            }
+        }
+        if (userText == null) {
+            return;
+        }
+        log.info("[PostProcessor] Latest USER message: {}", userText);
+        this.submit(userText, context.tokens() == null ? List.of() : context.tokens());
+    }
+
+    private void submit(String userText, List<Integer> tokens) {
+        submitted.incrementAndGet();
+        boolean coalesce = OverflowPolicy.COALESCE.equals(overflowPolicy) && !tokens.isEmpty();
+        if (coalesce && tokens.size() > 1) {
+            ExtractionJob waiting = pendingByFingerprint.get(tokens.get(1));
+            if (waiting != null && waiting.merge(userText, tokens)) {
+                pendingByFingerprint.remove(tokens.get(1), waiting);
+                pendingByFingerprint.put(tokens.get(0), waiting);
+                if (waiting.isStarted()) {
+                    pendingByFingerprint.remove(tokens.get(0), waiting);
                 }
+                coalesced.incrementAndGet();
+                log.debug("[PostProcessor] Merged fact extraction into a queued job of the same conversation");
+                return;
+            }
+        }
+        ExtractionJob job = new ExtractionJob(userText, tokens);
+        if (coalesce) {
+            pendingByFingerprint.put(tokens.get(0), job);
+        }
+        try {
+            executor.execute(job);
+        } catch (RejectedExecutionException e) {
+            if (coalesce) {
+                pendingByFingerprint.remove(tokens.get(0), job);
             }
+            dropped.incrementAndGet();
+            log.debug("[PostProcessor] Queue full ({} jobs), dropping fact extraction", executor.getQueue().size());
+        }
+    }
+
+    private void extractFacts(String userText, List<Integer> tokens) {
+        String systemPrompt = factExtractorTemplate.replace("{{user_message}}", userText);
+
+        // Get default LLM client
+        LlmClient client = null;
+        try {
+            client = llmClientFactory.getDefaultClient();
+        } catch (Exception e) {
+            log.debug("[PostProcessor] No LLM client available: {}", e.getMessage());
+        }
+        if (client == null) {
+            log.debug("[PostProcessor] LlmClient not available, skipping fact extraction");
+            return;
+        }
+
+        List<ChatMessage> msgs = List.of(new SystemMessage(systemPrompt));
+        LlmRequestOptions opts = LlmRequestOptions.defaults();
+        Response<String> resp = client.chat(msgs, opts);
+        String assistantOut = resp != null && resp.content() != null ? resp.content() : "";
+        log.info("[PostProcessor] Fact extractor response: {}", assistantOut);
 
+        assistantOut = LlmOutputCleaner.getJson(assistantOut);
+
+        // Parse assistantOut JSON into ExtractedFactDTO(s) and update facts
+        List<ExtractedFactDTO> parsedFacts = parseFactsFromJson(assistantOut);
+        if (parsedFacts != null && !parsedFacts.isEmpty()) {
+            if (userFactsService != null) {
+                userFactsService.updateFacts(parsedFacts, tokens);
+                log.info("[PostProcessor] Parsed {} fact(s) and updated UserFactsService", parsedFacts.size());
+            } else {
+                log.debug("[PostProcessor] UserFactsService not available; parsed facts not stored");
+            }
+        } else {
+            log.debug("[PostProcessor] No valid facts parsed from assistant output");
         }
     }
 
+    public Stats getStats() {
+        return new Stats(workers, queueCapacity, executor.getQueue().size(), executor.getActiveCount(),
+                submitted.get(), completed.get(), failed.get(), dropped.get(), coalesced.get(),
+                lastLagMillis.get(), maxLagMillis.get(), contexts.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     private List<ExtractedFactDTO> parseFactsFromJson(String json) {
         if (json == null || json.isBlank() || objectMapper == null) return Collections.emptyList();
         try {
@@ -2,7 +2,6 @@ package io.github.jrohila.simpleragserver.service;
 
 import io.github.jrohila.simpleragserver.dto.OpenAiChatRequestDTO;
 import io.github.jrohila.simpleragserver.dto.OpenAiChatResponseDTO;
-import io.github.jrohila.simpleragserver.dto.OpenAiChatStreamChunkDTO;
 import io.github.jrohila.simpleragserver.util.TokenGenerator;
 import io.github.jrohila.simpleragserver.domain.ChatEntity;
 
@@ -14,16 +13,15 @@ import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.StreamingHandle;
 import dev.langchain4j.model.output.Response;
 import io.github.jrohila.simpleragserver.client.LlmClient;
 import io.github.jrohila.simpleragserver.client.LlmClientFactory;
 import io.github.jrohila.simpleragserver.client.LlmRequestOptions;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -70,21 +68,33 @@ public class ChatService {
         this.titleRequestDetector = titleRequestDetector != null ? titleRequestDetector.orElse(null) : null;
     }
 
-    private Pair<ChatProcessResult, List<MessageDTO>> handleMessage(OpenAiChatRequestDTO request, ChatEntity chatEntity) {
-        ChatProcessResult result = ChatProcessResult.MESSAGES_HANDLED;
+    /**
+     * True if the request only asks for a conversation title; such requests
+     * skip RAG entirely.
+     */
+    public boolean isTitleRequest(OpenAiChatRequestDTO request) {
+        String firstUserContent = findFirstUserContent(request);
+        return firstUserContent != null
+                && titleRequestDetector != null
+                && titleRequestDetector.isTitleRequest(firstUserContent);
+    }
 
-        String firstUserContent = null;
+    private static String findFirstUserContent(OpenAiChatRequestDTO request) {
         if (request.getMessages() != null) {
             for (MessageDTO m : request.getMessages()) {
                 if (MessageDTO.Role.USER.equals(m.getRole())) {
-                    firstUserContent = m.getContentAsString();
-                    break;
+                    return m.getContentAsString();
                 }
             }
         }
-        boolean isTitleRequest = firstUserContent != null
-                && titleRequestDetector != null
-                && titleRequestDetector.isTitleRequest(firstUserContent);
+        return null;
+    }
+
+    private Pair<ChatProcessResult, List<MessageDTO>> handleMessage(OpenAiChatRequestDTO request, ChatEntity chatEntity, ContextAdditionPipe.PreparedRetrieval prepared) {
+        ChatProcessResult result = ChatProcessResult.MESSAGES_HANDLED;
+
+        String firstUserContent = findFirstUserContent(request);
+        boolean isTitleRequest = this.isTitleRequest(request);
 
         List<MessageDTO> springMessages = new ArrayList<>();
         if (isTitleRequest) {
@@ -100,9 +110,9 @@ public class ChatService {
             }
         } else {
             log.info("[ChatService] chatStream invoked: msgs={} model={} ", (request.getMessages() == null ? 0 : request.getMessages().size()), request.getModel());
-            List<Integer> rollingTokens = TokenGenerator.createTokens(springMessages);
+            List<Integer> rollingTokens = request.getMessages() == null ? new ArrayList<>() : TokenGenerator.createTokens(request.getMessages());
 
-            Pair<OperationResult, List<MessageDTO>> contextResult = this.contextAdditionPipe.process(request.getMessages(), chatEntity);
+            Pair<OperationResult, List<MessageDTO>> contextResult = this.contextAdditionPipe.process(request.getMessages(), chatEntity, prepared);
             if (OperationResult.CONTEXT_ADDED.equals(contextResult.getKey())) {
                 springMessages = this.contextAdditionPipe.appendMemory(request.getMessages(), rollingTokens, chatEntity);
             } else {
@@ -123,8 +133,12 @@ public class ChatService {
     }
 
     public OpenAiChatResponseDTO chat(OpenAiChatRequestDTO request, ChatEntity chatEntity) {
+        return this.chat(request, chatEntity, null);
+    }
+
+    public OpenAiChatResponseDTO chat(OpenAiChatRequestDTO request, ChatEntity chatEntity, ContextAdditionPipe.PreparedRetrieval prepared) {
         // Detect title request from the first user message, and short-circuit
-        Pair<ChatProcessResult, List<MessageDTO>> processResult = this.handleMessage(request, chatEntity);
+        Pair<ChatProcessResult, List<MessageDTO>> processResult = this.handleMessage(request, chatEntity, prepared);
         if (ChatProcessResult.PROMPT_OUT_OF_SCOPE.equals(processResult.getKey())) {
             String outOfScopeMsg = chatEntity.getDefaultOutOfScopeMessage();
             log.info("[ChatService] Prompt out of scope. Returning default out-of-scope message: {}", outOfScopeMsg);
@@ -200,28 +214,26 @@ public class ChatService {
     }
 
     /**
-     * Streaming version returning a Flux of OpenAI-compatible streaming chunks.
+     * A streamed completion: the raw content deltas plus what is needed to
+     * frame them as OpenAI-compatible chunks.
      */
-    public Flux<OpenAiChatStreamChunkDTO> chatStream(OpenAiChatRequestDTO request, ChatEntity chatEntity) {
+    public record StreamedChat(String id, String model, long created, Flux<String> deltas) {
+    }
+
+    /**
+     * Streams the completion as plain content deltas, without building a
+     * chunk object per token; callers frame them (see StreamFrameTemplate).
+     */
+    public StreamedChat chatStreamDeltas(OpenAiChatRequestDTO request, ChatEntity chatEntity, ContextAdditionPipe.PreparedRetrieval prepared) {
         // Detect title request from the first user message, and short-circuit
-        Pair<ChatProcessResult, List<MessageDTO>> processResult = this.handleMessage(request, chatEntity);
+        Pair<ChatProcessResult, List<MessageDTO>> processResult = this.handleMessage(request, chatEntity, prepared);
+        String id = "chatcmpl-" + UUID.randomUUID();
+        String model = request.getModel();
+        long created = Instant.now().getEpochSecond();
         if (ChatProcessResult.PROMPT_OUT_OF_SCOPE.equals(processResult.getKey())) {
             String outOfScopeMsg = chatEntity.getDefaultOutOfScopeMessage();
             log.info("[ChatService] Prompt out of scope (stream). Returning default out-of-scope message: {}", outOfScopeMsg);
-            String id = "chatcmpl-" + java.util.UUID.randomUUID();
-            String model = request.getModel();
-            OpenAiChatStreamChunkDTO chunk = new OpenAiChatStreamChunkDTO();
-            chunk.setId(id);
-            chunk.setModel(model);
-            OpenAiChatStreamChunkDTO.ChoiceDelta choice = new OpenAiChatStreamChunkDTO.ChoiceDelta();
-            choice.setIndex(0);
-            choice.setFinishReason("stop");
-            OpenAiChatStreamChunkDTO.Delta delta = new OpenAiChatStreamChunkDTO.Delta();
-            delta.setRole("assistant");
-            delta.setContent(outOfScopeMsg);
-            choice.setDelta(delta);
-            chunk.setChoices(java.util.List.of(choice));
-            return Flux.just(chunk);
+            return new StreamedChat(id, model, created, outOfScopeMsg == null ? Flux.empty() : Flux.just(outOfScopeMsg));
         } else {
             List<MessageDTO> springMessages = processResult.getValue();
 
@@ -234,8 +246,6 @@ public class ChatService {
                 log.debug("[ChatService] Rolling token computation (streaming) failed: {}", e.getMessage());
             }
 
-            String id = "chatcmpl-" + UUID.randomUUID();
-
             postProcessor.addContext(id, springMessages, rollingTokens);
 
             // Log prompt token length using jtokkit
@@ -245,10 +255,7 @@ public class ChatService {
             } catch (Exception e) {
                 log.debug("[ChatService] Token count (prompt, streaming) failed: {}", e.getMessage());
             }
-            String model = request.getModel();
-            AtomicBoolean first = new AtomicBoolean(true);
             StringBuilder cumulative = new StringBuilder();
-            AtomicInteger index = new AtomicInteger(0);
 
             // Convert MessageDTO to langchain4j ChatMessage
             List<ChatMessage> chatMessages = convertToChatMessages(springMessages);
@@ -259,11 +266,14 @@ public class ChatService {
             // Get LLM client
             LlmClient client = llmClientFactory.getDefaultClient();
             
-            return Flux.<OpenAiChatStreamChunkDTO>create(sink -> {
+            Flux<String> deltas = Flux.<String>create(sink -> {
                 log.info("[ChatService] Creating Flux for streaming response");
-                client.streamChat(chatMessages, options, 
+                StreamingHandle handle = client.streamChat(chatMessages, options, 
                     // Token handler
                     token -> {
+                        if (sink.isCancelled()) {
+                            return;
+                        }
                         log.debug("[ChatService] Received token from LlmClient: '{}'", token);
                         cumulative.append(token);
                         // Optional capture of per-delta content
@@ -273,21 +283,7 @@ public class ChatService {
                             }
                         } catch (Exception ignore) {
                         }
-                        
-                        OpenAiChatStreamChunkDTO chunk = new OpenAiChatStreamChunkDTO();
-                        chunk.setId(id);
-                        chunk.setModel(model);
-                        OpenAiChatStreamChunkDTO.ChoiceDelta choice = new OpenAiChatStreamChunkDTO.ChoiceDelta();
-                        choice.setIndex(index.get());
-                        OpenAiChatStreamChunkDTO.Delta delta = new OpenAiChatStreamChunkDTO.Delta();
-                        if (first.getAndSet(false)) {
-                            delta.setRole("assistant");
-                        }
-                        delta.setContent(token);
-                        choice.setDelta(delta);
-                        chunk.setChoices(List.of(choice));
-                        log.debug("[ChatService] Emitting chunk to Flux sink");
-                        sink.next(chunk);
+                        sink.next(token);
                     },
                     // Completion handler
                     () -> {
@@ -300,8 +296,15 @@ public class ChatService {
                         sink.error(error);
                     }
                 );
+                // Subscriber gone (client disconnected, timed out): abort generation on the LLM side
+                sink.onCancel(() -> {
+                    log.info("[ChatService] Stream {} cancelled by subscriber, aborting LLM stream", id);
+                    handle.cancel();
+                });
             })
-                    .concatWith(Mono.fromSupplier(() -> {
+                    .doOnCancel(() -> this.notifyCancel(id))
+                    .doOnError(error -> this.notifyCancel(id))
+                    .doOnComplete(() -> {
                         // On stream completion, log completion tokens using accumulated content
                         try {
                             int completionTokens = this.chatHelper.countTokens(cumulative.toString());
@@ -316,18 +319,17 @@ public class ChatService {
                             }
                         } catch (Exception ignore) {
                         }
-                        OpenAiChatStreamChunkDTO done = new OpenAiChatStreamChunkDTO();
-                        done.setId(id);
-                        done.setModel(model);
-                        OpenAiChatStreamChunkDTO.ChoiceDelta choice = new OpenAiChatStreamChunkDTO.ChoiceDelta();
-                        choice.setIndex(index.get());
-                        choice.setFinishReason("stop");
-                        OpenAiChatStreamChunkDTO.Delta delta = new OpenAiChatStreamChunkDTO.Delta();
-                        delta.setContent("");
-                        choice.setDelta(delta);
-                        done.setChoices(List.of(choice));
-                        return done;
-                    }));
+                    });
+            return new StreamedChat(id, model, created, deltas);
+        }
+    }
+
+    private void notifyCancel(String id) {
+        try {
+            if (streamConsumer != null) {
+                streamConsumer.onCancel(id);
+            }
+        } catch (Exception ignore) {
         }
     }
 
@@ -10,4 +10,8 @@ public interface ChatStreamConsumer {
 
     /** Called once at the end with the full accumulated assistant response. */
     void onComplete(String streamId, String fullResponse);
+
+    /** Called instead of onComplete when the client abandons or the stream fails. */
+    default void onCancel(String streamId) {
+    }
 }
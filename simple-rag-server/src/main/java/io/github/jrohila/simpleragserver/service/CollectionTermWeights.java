@@ -0,0 +1,142 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.service;
+
+import io.github.jrohila.simpleragnlp.impl.DocumentFrequencyWordWeight;
+import io.github.jrohila.simpleragnlp.impl.TermFinderStatImpl;
+import io.github.jrohila.simpleragserver.domain.ChunkEntity;
+import io.github.jrohila.simpleragserver.repository.IndicesManager;
+import io.github.jrohila.simpleragserver.service.NlpService.NlpEngine;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import opennlp.summarization.preprocess.StopWords;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Document frequencies of the indexed collections for the STATISTICAL term
+ * engine. A random sample of chunks across all chunk indices is read (text
+ * only) and counted per document, and the term finder is rebuilt on those
+ * weights. Refreshed periodically, so newly ingested documents are taken
+ * into account. Until enough documents have been counted the engine uses
+ * the bundled generic IDF table.
+ *
+ * @author Jukka
+ */
+@Service
+public class CollectionTermWeights {
+
+    private static final Logger log = LoggerFactory.getLogger(CollectionTermWeights.class);
+
+    // OpenSearch default index.max_result_window
+    private static final int MAX_PAGE = 10000;
+
+    private final OpenSearchClient client;
+
+    @Autowired
+    private IndicesManager indicesManager;
+
+    private final boolean enabled;
+    private final int sampleSize;
+    private final int minDocuments;
+
+    private volatile TermFinderStatImpl termFinder;
+    private final AtomicLong generation = new AtomicLong();
+
+    public CollectionTermWeights(OpenSearchClient client,
+            @Value("${processing.chat.boost-terms.engine:STANFORD_CORE_NLP}") NlpEngine engine,
+            @Value("${processing.chat.boost-terms.collection-idf.enabled:true}") boolean enabled,
+            @Value("${processing.chat.boost-terms.collection-idf.sample-size:20000}") int sampleSize,
+            @Value("${processing.chat.boost-terms.collection-idf.min-documents:5}") int minDocuments) {
+        this.client = client;
+        this.enabled = enabled && NlpEngine.STATISTICAL.equals(engine);
+        this.sampleSize = Math.max(1, sampleSize);
+        this.minDocuments = Math.max(1, minDocuments);
+    }
+
+    /**
+     * The term finder on the collection weights, or null if they have not
+     * been counted (yet).
+     */
+    public TermFinderStatImpl getTermFinder() {
+        return termFinder;
+    }
+
+    /**
+     * Incremented whenever the weights change, so terms extracted with older
+     * weights can be told apart.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    @Scheduled(initialDelayString = "${processing.chat.boost-terms.collection-idf.initial-delay-ms:60000}",
+            fixedDelayString = "${processing.chat.boost-terms.collection-idf.refresh-interval-ms:3600000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        long t0 = System.nanoTime();
+        List<String> indices;
+        try {
+            indices = indicesManager.findIndices(ChunkEntity.class);
+        } catch (Exception e) {
+            log.warn("Collection term weights: could not list chunk indices: {}", e.getMessage());
+            return;
+        }
+        DocumentFrequencyWordWeight.Builder builder = DocumentFrequencyWordWeight.builder();
+        int chunks = 0;
+        // Share the sample between the indices, so every collection is represented
+        int perIndex = indices.isEmpty() ? 0 : Math.min(MAX_PAGE, Math.max(1, sampleSize / indices.size()));
+        for (String indexName : indices) {
+            try {
+                chunks += this.sample(indexName, perIndex, builder);
+            } catch (Exception e) {
+                log.warn("Collection term weights: sampling {} failed: {}", indexName, e.getMessage());
+            }
+        }
+        if (builder.documents() < minDocuments) {
+            log.info("Collection term weights: {} documents found, at least {} needed, using the generic IDF table",
+                    builder.documents(), minDocuments);
+            return;
+        }
+        DocumentFrequencyWordWeight weights = builder.build();
+        termFinder = new TermFinderStatImpl(new StopWords(), weights);
+        generation.incrementAndGet();
+        log.info("Collection term weights: {} words from {} chunks of {} documents in {} indices, took {}ms",
+                weights.getWords(), chunks, weights.getDocuments(), indices.size(), (System.nanoTime() - t0) / 1_000_000L);
+    }
+
+    private int sample(String indexName, int size, DocumentFrequencyWordWeight.Builder builder) throws Exception {
+        SearchResponse<ChunkEntity> resp = client.search(s -> s
+                .index(indexName)
+                .size(size)
+                .source(src -> src.filter(f -> f.includes("documentId", "sectionTitle", "text")))
+                .query(q -> q.functionScore(fs -> fs
+                        .query(mq -> mq.matchAll(m -> m))
+                        .functions(fn -> fn.randomScore(r -> r)))),
+                ChunkEntity.class);
+        int count = 0;
+        for (Hit<ChunkEntity> hit : resp.hits().hits()) {
+            ChunkEntity chunk = hit.source();
+            if (chunk == null) {
+                continue;
+            }
+            // Document ids are only unique within a collection; a chunk without one counts as its own document
+            String documentId = indexName + "/" + (chunk.getDocumentId() != null ? chunk.getDocumentId() : hit.id());
+            builder.add(documentId, chunk.getSectionTitle());
+            builder.add(documentId, chunk.getText());
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.service;
+
+import io.github.jrohila.simpleragserver.client.DoclingAsyncClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tracks running Docling operations. Every operation is polled on its own
+ * adaptive backoff schedule: the delay starts small, grows while nothing
+ * changes and is reset when Docling reports progress. Waiting between polls is
+ * done by a scheduler, not by sleeping threads, and the number of status
+ * requests in flight is bounded. When the server supports it the status call
+ * long-polls with the "wait" parameter so completion is noticed immediately.
+ *
+ * @author Jukka
+ */
+@Component
+public class DoclingTaskTracker {
+
+    private static final Logger LOGGER = Logger.getLogger(DoclingTaskTracker.class.getName());
+
+    @Autowired
+    private DoclingAsyncClient doclingAsyncClient;
+
+    @Value("${docling.tracker.initial-delay-ms:500}")
+    private long initialDelayMs;
+    @Value("${docling.tracker.max-delay-ms:30000}")
+    private long maxDelayMs;
+    @Value("${docling.tracker.backoff-multiplier:1.5}")
+    private double backoffMultiplier;
+    @Value("${docling.tracker.max-concurrent-polls:8}")
+    private int maxConcurrentPolls;
+    @Value("${docling.tracker.wait-seconds:5}")
+    private int waitSeconds;
+    @Value("${docling.tracker.max-errors:20}")
+    private int maxErrors;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "docling-tracker");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService pollExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("docling-poll-", 0).factory());
+    private final Map<String, TrackedTask> tasks = new ConcurrentHashMap<>();
+    private Semaphore pollPermits;
+
+    private static final class TrackedTask {
+
+        private final String taskId;
+        private final Consumer<DoclingAsyncClient.OperationStatus> onTerminal;
+        private long delayMs;
+        private Integer lastProgress;
+        private String lastStatus;
+        private int errors;
+
+        private TrackedTask(String taskId, Consumer<DoclingAsyncClient.OperationStatus> onTerminal, long delayMs) {
+            this.taskId = taskId;
+            this.onTerminal = onTerminal;
+            this.delayMs = delayMs;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        pollPermits = new Semaphore(Math.max(1, maxConcurrentPolls));
+    }
+
+    /**
+     * Starts tracking a Docling operation. The callback is invoked once, on a
+     * virtual thread, with the terminal status (success or failure). Tracking
+     * the same task id twice is a no-op.
+     *
+     * @return true if the task was newly registered
+     */
+    public boolean track(String taskId, Consumer<DoclingAsyncClient.OperationStatus> onTerminal) {
+        TrackedTask task = new TrackedTask(taskId, onTerminal, initialDelayMs);
+        if (tasks.putIfAbsent(taskId, task) != null) {
+            return false;
+        }
+        LOGGER.log(Level.INFO, "DoclingTaskTracker: tracking taskId={0}", taskId);
+        this.schedule(task, 0);
+        return true;
+    }
+
+    public boolean isTracked(String taskId) {
+        return tasks.containsKey(taskId);
+    }
+
+    public int getTrackedCount() {
+        return tasks.size();
+    }
+
+    private void schedule(TrackedTask task, long delayMs) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        scheduler.schedule(() -> this.dispatch(task), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void dispatch(TrackedTask task) {
+        // Bounded concurrency: if all permits are taken, try again shortly instead of queueing a blocked thread
+        if (!pollPermits.tryAcquire()) {
+            this.schedule(task, Math.min(initialDelayMs, 250L));
+            return;
+        }
+        pollExecutor.execute(() -> {
+            try {
+                this.poll(task);
+            } finally {
+                pollPermits.release();
+            }
+        });
+    }
+
+    private void poll(TrackedTask task) {
+        DoclingAsyncClient.OperationStatus status;
+        try {
+            status = doclingAsyncClient.getStatusById(task.taskId, Math.max(0, waitSeconds));
+        } catch (RuntimeException ex) {
+            task.errors++;
+            if (task.errors >= maxErrors) {
+                // Give up and report the task as failed, e.g. Docling lost the task after a restart
+                status = new DoclingAsyncClient.OperationStatus(task.taskId, "failed", null, null,
+                        "Status poll failed " + task.errors + " times: " + ex.getMessage(), null);
+                this.complete(task, status);
+                return;
+            }
+            task.delayMs = nextDelay(task.delayMs);
+            LOGGER.log(Level.WARNING, "DoclingTaskTracker: status poll failed for taskId={0} (errors={1}), retrying in {2}ms: {3}",
+                    new Object[]{task.taskId, task.errors, task.delayMs, ex.getMessage()});
+            this.schedule(task, task.delayMs);
+            return;
+        }
+        task.errors = 0;
+
+        if (status.isTerminal()) {
+            this.complete(task, status);
+            return;
+        }
+
+        boolean changed = !java.util.Objects.equals(status.progress(), task.lastProgress)
+                || !java.util.Objects.equals(status.status(), task.lastStatus);
+        task.lastProgress = status.progress();
+        task.lastStatus = status.status();
+        task.delayMs = changed ? initialDelayMs : nextDelay(task.delayMs);
+        LOGGER.log(Level.FINE, "DoclingTaskTracker: taskId={0} status={1} progress={2}, next poll in {3}ms",
+                new Object[]{task.taskId, status.status(), status.progress(), task.delayMs});
+        this.schedule(task, task.delayMs);
+    }
+
+    private void complete(TrackedTask task, DoclingAsyncClient.OperationStatus status) {
+        tasks.remove(task.taskId);
+        LOGGER.log(Level.INFO, "DoclingTaskTracker: taskId={0} finished with status={1}", new Object[]{task.taskId, status.status()});
+        try {
+            task.onTerminal.accept(status);
+        } catch (RuntimeException ex) {
+            LOGGER.log(Level.SEVERE, "DoclingTaskTracker: completion handler failed for taskId=" + task.taskId, ex);
+        }
+    }
+
+    private long nextDelay(long current) {
+        long next = (long) Math.ceil(Math.max(1L, current) * Math.max(1.0, backoffMultiplier));
+        return Math.min(Math.max(initialDelayMs, next), maxDelayMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pollExecutor.shutdownNow();
+    }
+}
@@ -4,25 +4,27 @@
  */
 package io.github.jrohila.simpleragserver.service;
 
-import io.github.jrohila.simpleragserver.repository.ChunkService;
 import io.github.jrohila.simpleragserver.repository.DocumentService;
 import io.github.jrohila.simpleragserver.repository.ChunkingTaskService;
-import io.github.jrohila.simpleragserver.domain.ChunkEntity;
 import io.github.jrohila.simpleragserver.domain.ChunkingTaskEntity;
 import io.github.jrohila.simpleragserver.domain.DocumentEntity;
 import io.github.jrohila.simpleragserver.event.DocumentUploadEvent;
 import io.github.jrohila.simpleragserver.client.DoclingAsyncClient;
-import io.github.jrohila.simpleragserver.client.EmbeddingClientFactory;
 import io.github.jrohila.simpleragserver.domain.DoclingChunkRequest;
 import io.github.jrohila.simpleragserver.domain.DoclingChunkResponse;
-import io.github.jrohila.simpleragserver.pipeline.ChunkQualityGate;
+import io.github.jrohila.simpleragserver.pipeline.ChunkIngestionPipeline;
 import io.github.jrohila.simpleragserver.repository.DocumentContentStore;
 // imports for ChunkService and NlpService are unnecessary since they're in the same package
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -36,15 +38,9 @@ public class DocumentChunkerService {
 
     private static final Logger LOGGER = Logger.getLogger(DocumentChunkerService.class.getName());
 
-    @Autowired
-    private EmbeddingClientFactory embedService;
-
     @Autowired
     private DoclingAsyncClient doclingAsyncClient;
 
-    @Autowired
-    private ChunkService chunkService;
-
     @Autowired
     private DocumentService documentService;
 
@@ -52,38 +48,78 @@ public class DocumentChunkerService {
     private DocumentContentStore documentContentStore;
 
     @Autowired
-    private NlpService nlpService;
+    private ChunkIngestionPipeline ingestionPipeline;
 
     @Autowired
-    private ChunkQualityGate qualityGate;
+    @Qualifier("chunkingExecutor")
+    private Executor chunkingExecutor;
+
+    // Task ids whose chunks are currently being ingested on the chunking executor
+    private final Set<String> ingestingTasks = ConcurrentHashMap.newKeySet();
 
     @Autowired
     private ChunkingTaskService chunkingTaskService;
 
-    @Scheduled(fixedDelay = 60000)
+    @Autowired
+    private DoclingTaskTracker doclingTaskTracker;
+
+    /**
+     * Safety net for tasks that are not tracked in memory, e.g. tasks that were
+     * still PROCESSING when the server was restarted. Completion of tracked
+     * tasks is handled by DoclingTaskTracker as soon as Docling reports it.
+     */
+    @Scheduled(initialDelayString = "${docling.tracker.reconcile-initial-delay-ms:10000}", fixedDelayString = "${docling.tracker.reconcile-interval-ms:300000}")
     public void checkChunkingProcessState() {
-        LOGGER.info("DocumentChunker: Running scheduled task");
-
-        List<ChunkingTaskEntity> tasks = this.chunkingTaskService.findByStatus(DocumentEntity.ProcessingState.PROCESSING, 0, 25);
-        LOGGER.log(Level.INFO, "DocumentChunker: Found {0} tasks in PROCESSING state", tasks.size());
+        List<ChunkingTaskEntity> tasks = this.chunkingTaskService.findByStatus(DocumentEntity.ProcessingState.PROCESSING, 0, 100);
+        LOGGER.log(Level.FINE, "DocumentChunker: Found {0} tasks in PROCESSING state", tasks.size());
 
         for (ChunkingTaskEntity task : tasks) {
-            LOGGER.log(Level.INFO, "DocumentChunker: Checking task status for taskId={0}, documentId={1}", new Object[]{task.getTaskId(), task.getDocumentId()});
+            if (ingestingTasks.contains(task.getTaskId()) || doclingTaskTracker.isTracked(task.getTaskId())) {
+                continue;
+            }
+            LOGGER.log(Level.INFO, "DocumentChunker: Resuming tracking of taskId={0}, documentId={1}", new Object[]{task.getTaskId(), task.getDocumentId()});
+            this.trackTask(task);
+        }
+    }
 
-            DoclingAsyncClient.OperationStatus status = this.checkIsChunkingDone(task.getTaskId());
+    private void trackTask(ChunkingTaskEntity task) {
+        doclingTaskTracker.track(task.getTaskId(), status -> {
             if (status.isSuccess()) {
                 LOGGER.log(Level.INFO, "DocumentChunker: Task completed successfully, taskId={0}", task.getTaskId());
+                this.submitIngestion(task, status);
+            } else {
+                LOGGER.log(Level.WARNING, "DocumentChunker: Docling task failed, taskId={0}, status={1}, error={2}",
+                        new Object[]{task.getTaskId(), status.status(), status.error()});
+                this.chunkingTaskService.updateStatus(task.getId(), DocumentEntity.ProcessingState.FAILED);
+                this.documentService.updateProcessingState(task.getCollectionId(), task.getDocumentId(), DocumentEntity.ProcessingState.FAILED);
+            }
+        });
+    }
+
+    /**
+     * Runs chunk ingestion for a finished Docling task on the chunking
+     * executor so the scheduler thread is not blocked by large documents.
+     */
+    private void submitIngestion(ChunkingTaskEntity task, DoclingAsyncClient.OperationStatus status) {
+        if (!ingestingTasks.add(task.getTaskId())) {
+            return;
+        }
+        try {
+            chunkingExecutor.execute(() -> {
                 try {
-                    this.saveChunks(task.getCollectionId(), task.getDocumentId(), task.getTaskId());
+                    this.saveChunks(task.getCollectionId(), task.getDocumentId(), status);
                     this.chunkingTaskService.updateStatus(task.getId(), DocumentEntity.ProcessingState.DONE);
                     LOGGER.log(Level.INFO, "DocumentChunker: Chunks saved and task marked as DONE, documentId={0}", task.getDocumentId());
                 } catch (Exception ex) {
                     LOGGER.log(Level.SEVERE, "DocumentChunker: Failed to save chunks for documentId=" + task.getDocumentId(), ex);
                     this.chunkingTaskService.updateStatus(task.getId(), DocumentEntity.ProcessingState.FAILED);
+                } finally {
+                    ingestingTasks.remove(task.getTaskId());
                 }
-            } else {
-                LOGGER.log(Level.FINE, "DocumentChunker: Task still processing, taskId={0}, status={1}", new Object[]{task.getTaskId(), status});
-            }
+            });
+        } catch (RejectedExecutionException ex) {
+            ingestingTasks.remove(task.getTaskId());
+            LOGGER.log(Level.WARNING, "DocumentChunker: Chunking executor is full, taskId={0} is retried by the reconcile run", task.getTaskId());
         }
     }
 
@@ -110,10 +146,6 @@ public class DocumentChunkerService {
                 return DocumentEntity.ProcessingState.FAILED;
             }
 
-            byte[] bytes = in.readAllBytes();
-            LOGGER.log(Level.INFO, "DocumentChunker: Read {0} bytes for documentId={1}",
-                    new Object[]{bytes.length, documentId});
-
             // Use Docling hybrid chunker instead of local XHTML-based pipeline
             DoclingChunkRequest.HybridChunkerOptions opts = new DoclingChunkRequest.HybridChunkerOptions();
             opts.setUseMarkdownTables(false);
@@ -122,16 +154,20 @@ public class DocumentChunkerService {
             opts.setMergePeers(true);
             // Let tokenizer default to docling's default
 
-            LOGGER.log(Level.INFO, "DocumentChunker: Submitting document to Docling async chunker, documentId={0}", documentId);
-
-            var response = doclingAsyncClient.hybridChunkFromBytes(
-                    doc.getOriginalFilename() != null ? doc.getOriginalFilename() : (documentId + ".pdf"),
-                    bytes,
-                    opts,
-                    false,
-                    "inbody",
-                    null
-            );
+            LOGGER.log(Level.INFO, "DocumentChunker: Streaming document to Docling async chunker, documentId={0}, contentLen={1}",
+                    new Object[]{documentId, doc.getContentLen()});
+
+            DoclingAsyncClient.StartOperationResult response;
+            try (in) {
+                response = doclingAsyncClient.hybridChunkFromStream(
+                        doc.getOriginalFilename() != null ? doc.getOriginalFilename() : (documentId + ".pdf"),
+                        in,
+                        opts,
+                        false,
+                        "inbody",
+                        null
+                );
+            }
 
             LOGGER.log(Level.INFO, "DocumentChunker: Received operation ID from Docling, taskId={0}, documentId={1}",
                     new Object[]{response.operationId(), documentId});
@@ -142,8 +178,9 @@ public class DocumentChunkerService {
             task.setTaskId(response.operationId());
             task.setStatus(DocumentEntity.ProcessingState.PROCESSING);
 
-            chunkingTaskService.save(task);
+            ChunkingTaskEntity saved = chunkingTaskService.save(task);
             LOGGER.log(Level.INFO, "DocumentChunker: Chunking task created and saved, taskId={0}", response.operationId());
+            this.trackTask(saved);
 
             return DocumentEntity.ProcessingState.PROCESSING;
         } catch (IOException ex) {
@@ -152,12 +189,8 @@ public class DocumentChunkerService {
         return DocumentEntity.ProcessingState.FAILED;
     }
 
-    private DoclingAsyncClient.OperationStatus checkIsChunkingDone(String pollUrlOrId) {
-        LOGGER.log(Level.FINE, "DocumentChunker: Checking status for taskId={0}", pollUrlOrId);
-        return doclingAsyncClient.getStatusById(pollUrlOrId);
-    }
-
-    private void saveChunks(String collectionId, String documentId, String pollUrlOrId) throws Exception {
+    private void saveChunks(String collectionId, String documentId, DoclingAsyncClient.OperationStatus status) throws Exception {
+        String pollUrlOrId = status.id();
         LOGGER.log(Level.INFO, "DocumentChunker: Starting to save chunks for documentId={0}, taskId={1}", new Object[]{documentId, pollUrlOrId});
 
         var docOpt = documentService.getById(collectionId, documentId);
@@ -167,10 +200,9 @@ public class DocumentChunkerService {
         }
         var doc = docOpt.get();
 
-        LOGGER.log(Level.INFO, "DocumentChunker: Polling Docling for chunks, taskId={0}", pollUrlOrId);
-        var polled = this.doclingAsyncClient.pollChunkUntilTerminal(pollUrlOrId, 60000, 1000);
-        if (polled != null && polled.status().isSuccess()) {
-            DoclingChunkResponse resp = polled.response();
+        LOGGER.log(Level.INFO, "DocumentChunker: Fetching chunks from Docling, taskId={0}", pollUrlOrId);
+        if (status.isSuccess()) {
+            DoclingChunkResponse resp = this.doclingAsyncClient.fetchChunkResult(status).orElse(null);
             if (resp == null) {
                 LOGGER.log(Level.WARNING, "DocumentChunker: Docling returned null response for documentId={0}", documentId);
                 throw new Exception("DocumentChunker: Docling returned null response for documentId=" + documentId);
@@ -182,82 +214,22 @@ public class DocumentChunkerService {
             }
             LOGGER.log(Level.INFO, "DocumentChunker: Received {0} chunks from Docling for documentId={1}", new Object[]{doclingChunks.size(), documentId});
 
-            List<ChunkEntity> chunks = new java.util.ArrayList<>();
-            for (DoclingChunkResponse.Chunk c : doclingChunks) {
-                ChunkEntity e = new ChunkEntity();
-                e.setText(c.getText());
-                e.setSectionTitle(c.getTitle());
-                if (c.getPageNumber() != null) {
-                    e.setPageNumber(c.getPageNumber());
-                }
-                // Detect language based on text content
-                try {
-                    String lang = nlpService.detectLanguage(e.getText());
-                    e.setLanguage(lang);
-                    LOGGER.log(Level.FINE, "DocumentChunker: Detected language={0} for chunk in documentId={1}", new Object[]{lang, documentId});
-                } catch (RuntimeException ex) {
-                    LOGGER.log(Level.WARNING, "DocumentChunker: Failed to detect language for chunk in documentId=" + documentId, ex);
-                    e.setLanguage("und");
-                }
-                // carry doc name and id later during save loop
-                // language/hash not provided by Docling chunks; leave empty
-                chunks.add(e);
-            }
-
-            LOGGER.log(Level.INFO, "DocumentChunker: Processed {0} chunks for documentId={1}", new Object[]{chunks.size(), documentId});
+            ChunkIngestionPipeline.IngestionResult result = ingestionPipeline.ingest(collectionId, doc, doclingChunks);
 
-            // Apply quality gate filters (e.g., remove 'und' language chunks)
-            int saved = 0;
-            int total = chunks.size();
-            LOGGER.log(Level.INFO, "DocumentChunker: Starting to persist {0} chunks for documentId={1}", new Object[]{total, documentId});
-
-            for (ChunkEntity chunk : chunks) {
-                chunk.setDocumentId(documentId);
-                // Copy original file name into chunk as documentName for denormalized display
-                chunk.setDocumentName(doc.getOriginalFilename());
-                if (chunk.getHash() != null && !chunk.getHash().isBlank()) {
-                    chunk.setId(documentId + ":" + chunk.getHash());
-                }
-
-                // Build embedding input; skip if no text to embed
-                String embedInput = (chunk.getSectionTitle() == null ? "" : chunk.getSectionTitle())
-                        + (chunk.getSectionTitle() == null ? "" : " : ")
-                        + (chunk.getText() == null ? "" : chunk.getText());
-                if (embedInput.isBlank()) {
-                    LOGGER.log(Level.FINE, "Skipping chunk without content (no embedding input). docId={0}", documentId);
-                    continue;
-                }
-
-                // Quality gate: require at least 3 sentences
-                if (!qualityGate.filter(chunk)) {
-                    LOGGER.log(Level.FINE, "Skipping chunk that failed quality gate. docId={0}", documentId);
-                    continue;
-                }
-                
-                chunk.setType(chunk.getType());
-                chunk.setPageNumber(chunk.getPageNumber());
-                chunk.setSectionTitle(chunk.getSectionTitle());
-                
-                chunk.setEmbedding(embedService.getDefaultClient().embedAsList(embedInput));
-
-                // Persist via service; on validation failure, skip and continue
-                try {
-                    if (chunk.getId() != null && chunkService.getById(collectionId, chunk.getId()).isPresent()) {
-                        chunkService.update(collectionId, chunk.getId(), chunk);
-                    } else {
-                        chunkService.create(collectionId, chunk);
-                    }
-                    saved++;
-                    if (saved == 1 || saved == total || saved % 10 == 0) {
-                        LOGGER.log(Level.INFO, "DocumentChunker: chunk progress {0}/{1} (docId={2})", new Object[]{saved, total, documentId});
-                    }
-                } catch (IllegalArgumentException | IllegalStateException ex) {
-                    LOGGER.log(Level.WARNING, "Skipping invalid/duplicate chunk. docId={0} reason={1}", new Object[]{documentId, ex.getMessage()});
-                }
+            if (result.saved() == 0 && result.failed() > 0) {
+                // Nothing was indexed because of errors (e.g. the embedding service is down), not because of the quality gate
+                this.documentService.updateProcessingState(collectionId, doc.getId(), DocumentEntity.ProcessingState.FAILED);
+                throw new Exception("DocumentChunker: all " + result.failed() + " ingested chunks failed for documentId=" + documentId
+                        + " (rejected=" + result.rejected() + ")");
             }
-
             this.documentService.updateProcessingState(collectionId, doc.getId(), DocumentEntity.ProcessingState.DONE);
-            LOGGER.log(Level.INFO, "DocumentChunker: Successfully saved {0}/{1} chunks for documentId={2}", new Object[]{saved, total, documentId});
+            if (result.failed() > 0) {
+                LOGGER.log(Level.WARNING, "DocumentChunker: Saved only {0}/{1} chunks for documentId={2}, {4} failed (rejected={3})",
+                        new Object[]{result.saved(), result.total(), documentId, result.rejected(), result.failed()});
+            } else {
+                LOGGER.log(Level.INFO, "DocumentChunker: Successfully saved {0}/{1} chunks for documentId={2} (rejected={3}, failed={4})",
+                        new Object[]{result.saved(), result.total(), documentId, result.rejected(), result.failed()});
+            }
         } else {
             this.documentService.updateProcessingState(collectionId, doc.getId(), DocumentEntity.ProcessingState.FAILED);
             LOGGER.log(Level.WARNING, "DocumentChunker: Polling failed or returned no success status for taskId={0}, documentId={1}", new Object[]{pollUrlOrId, documentId});
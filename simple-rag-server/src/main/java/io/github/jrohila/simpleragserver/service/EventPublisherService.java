@@ -1,5 +1,6 @@
 package io.github.jrohila.simpleragserver.service;
 
+import io.github.jrohila.simpleragserver.event.CollectionDeleteEvent;
 import io.github.jrohila.simpleragserver.event.DocumentUploadEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -22,4 +23,10 @@ public class EventPublisherService {
         eventPublisher.publishEvent(event);
         logger.info("Published DocumentUploadEvent: collectionId={}, documentId={}", collectionId, documentId);
     }
+
+    public void publishCollectionDeleteEvent(String collectionId) {
+        CollectionDeleteEvent event = new CollectionDeleteEvent(collectionId);
+        eventPublisher.publishEvent(event);
+        logger.info("Published CollectionDeleteEvent: collectionId={}", collectionId);
+    }
 }
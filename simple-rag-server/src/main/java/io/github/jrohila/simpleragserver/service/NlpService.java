@@ -1,39 +1,160 @@
 package io.github.jrohila.simpleragserver.service;
 
+import io.github.jrohila.simpleragnlp.CoreNlpPipelinePool;
+import io.github.jrohila.simpleragnlp.CoreNlpProfile;
 import io.github.jrohila.simpleragnlp.OpenNlpFactory;
+import io.github.jrohila.simpleragnlp.StanfordCoreNlpFactory;
 import io.github.jrohila.simpleragnlp.impl.TermFinderONImpl;
 import io.github.jrohila.simpleragnlp.impl.TermFinderSCNImpl;
+import io.github.jrohila.simpleragnlp.impl.TermFinderStatImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class NlpService {
 
     public enum NlpEngine {
-        OPEN_NLP, STANFORD_CORE_NLP
+        OPEN_NLP, STANFORD_CORE_NLP, STATISTICAL
     }
 
     private static final Logger log = LoggerFactory.getLogger(NlpService.class);
 
+    @Autowired
+    private CollectionTermWeights collectionTermWeights;
+
+    private final CoreNlpProfile queryProfile;
+    private final int languageMaxChars;
+    private final int languageSampleSize;
+
+    public NlpService(
+            @Value("${processing.nlp.corenlp.pool-size:0}") int corenlpPoolSize,
+            @Value("${processing.nlp.corenlp.wait-timeout-ms:30000}") long corenlpWaitTimeoutMs,
+            @Value("${processing.nlp.corenlp.query-profile:QUERY}") CoreNlpProfile queryProfile,
+            @Value("${processing.nlp.language.max-chars:1000}") int languageMaxChars,
+            @Value("${processing.nlp.language.sample-size:8}") int languageSampleSize) {
+        StanfordCoreNlpFactory.configure(corenlpPoolSize, corenlpWaitTimeoutMs);
+        this.queryProfile = queryProfile;
+        this.languageMaxChars = languageMaxChars;
+        this.languageSampleSize = Math.max(1, languageSampleSize);
+    }
+
+    /**
+     * Detects the language from at most the first max-chars characters of the
+     * text; detection cost grows with the input length while the result
+     * rarely changes after the first paragraph.
+     */
     public String detectLanguage(String text) {
-        return OpenNlpFactory.getInstance().detectLanguage(text);
+        return OpenNlpFactory.getInstance().detectLanguage(prefix(text));
+    }
+
+    /**
+     * Detects the language of each text, in order.
+     */
+    public List<String> detectLanguages(List<String> texts) {
+        OpenNlpFactory factory = OpenNlpFactory.getInstance();
+        List<String> result = new ArrayList<>(texts.size());
+        Map<String, String> seen = new HashMap<>();
+        for (String text : texts) {
+            String p = prefix(text);
+            result.add(p == null ? factory.detectLanguage(null) : seen.computeIfAbsent(p, factory::detectLanguage));
+        }
+        return result;
+    }
+
+    /**
+     * Language of a document given the texts of its chunks: the most common
+     * language of up to sample-size evenly spaced non-blank chunks. Returns
+     * "und" if there is no text.
+     */
+    public String detectDocumentLanguage(List<String> texts) {
+        List<String> nonBlank = new ArrayList<>();
+        for (String text : texts) {
+            if (text != null && !text.isBlank()) {
+                nonBlank.add(text);
+            }
+        }
+        if (nonBlank.isEmpty()) {
+            return "und";
+        }
+        List<String> sample = new ArrayList<>();
+        int n = Math.min(languageSampleSize, nonBlank.size());
+        for (int i = 0; i < n; i++) {
+            sample.add(nonBlank.get((int) ((long) i * nonBlank.size() / n)));
+        }
+        Map<String, Integer> votes = new LinkedHashMap<>();
+        for (String language : this.detectLanguages(sample)) {
+            if (!"und".equals(language)) {
+                votes.merge(language, 1, Integer::sum);
+            }
+        }
+        String best = "und";
+        int bestVotes = 0;
+        for (Map.Entry<String, Integer> e : votes.entrySet()) {
+            if (e.getValue() > bestVotes) {
+                best = e.getKey();
+                bestVotes = e.getValue();
+            }
+        }
+        log.debug("Document language={} votes={} sampled={} of {} chunks", best, votes, n, texts.size());
+        return best;
+    }
+
+    private String prefix(String text) {
+        if (text == null || languageMaxChars <= 0 || text.length() <= languageMaxChars) {
+            return text;
+        }
+        int end = languageMaxChars;
+        // Do not cut a surrogate pair in half
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
     }
     
     /**
      * Extract simple candidate terms (noun phrases) from English text using POS
      * tags. Heuristic: sequences of adjectives (JJ*) followed by one or more
      * nouns (NN*), preserving original token text. Duplicates are removed
-     * preserving order.
+     * preserving order. STATISTICAL needs no tagger: it takes runs of non
+     * stop words and keeps those specific enough by the IDF of the indexed
+     * collections (see CollectionTermWeights).
      */
     public List<String> extractCandidateTerms(String text, NlpEngine nlpEngine) {
         if (NlpEngine.OPEN_NLP.equals(nlpEngine)) {
             return TermFinderONImpl.extractTerms(text);
+        } else if (NlpEngine.STATISTICAL.equals(nlpEngine)) {
+            TermFinderStatImpl termFinder = collectionTermWeights.getTermFinder();
+            return termFinder != null ? termFinder.extract(text) : TermFinderStatImpl.extractTerms(text);
         } else {
-            return TermFinderSCNImpl.extractTerms(text);
+            return TermFinderSCNImpl.extractTerms(text, queryProfile);
         }
     }
 
+    /**
+     * Loads the CoreNLP models of the profile used for term extraction.
+     */
+    public void preloadCoreNlp() {
+        StanfordCoreNlpFactory.getInstance().preload(queryProfile);
+    }
+
+    /**
+     * Changes when the term weights of the STATISTICAL engine are refreshed.
+     */
+    public long getTermWeightsGeneration() {
+        return collectionTermWeights.getGeneration();
+    }
+
+    public List<CoreNlpPipelinePool.Stats> getCoreNlpStats() {
+        return StanfordCoreNlpFactory.getInstance().getStats();
+    }
+
 }
@@ -5,15 +5,43 @@
 package io.github.jrohila.simpleragserver.service;
 
 import io.github.jrohila.simpleragserver.domain.ExtractedFactDTO;
+import io.github.jrohila.simpleragserver.domain.UserFactsEntity;
+import io.github.jrohila.simpleragserver.repository.UserFactsStore;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 /**
+ * Memory of extracted user facts per conversation. A conversation is found
+ * by any of the rolling tokens of its messages (see TokenGenerator).
+ * - In memory, conversations are held in concurrent maps and their facts are
+ *   indexed by subject/relation and subject/relation/statement, so lookups
+ *   and merges do not scan the fact lists. Readers get an immutable
+ *   snapshot of the facts.
+ * - Facts per conversation are capped (least recently updated dropped),
+ *   conversations expire after the TTL and the least recently used ones are
+ *   evicted above the size limit.
+ * - Every update is written behind to the user facts index. Recent
+ *   conversations are loaded at startup, others are read through on a miss.
  *
  * @author Jukka
  */
@@ -21,142 +49,515 @@ import org.springframework.stereotype.Service;
 public class UserFactsService {
 
     private static final Logger log = LoggerFactory.getLogger(UserFactsService.class);
-    private final Map<Integer, List<ExtractedFactDTO>> chatFacts = new HashMap<>();
+    private static final char DELIM = '\u001F';
+
+    private static final class Conversation {
+        private final String id;
+        private final String created;
+        private final ReentrantLock lock = new ReentrantLock();
+        // Facts keyed by subject/relation/statement, least recently updated first
+        private final LinkedHashMap<String, ExtractedFactDTO> facts = new LinkedHashMap<>();
+        // subject/relation -> key of the first fact with that subject and relation
+        private final Map<String, String> bySubjectRelation = new HashMap<>();
+        private final LinkedHashSet<Integer> tokens = new LinkedHashSet<>();
+        private final AtomicBoolean persistPending = new AtomicBoolean();
+        private volatile List<ExtractedFactDTO> snapshot = List.of();
+        private volatile long lastAccess = System.nanoTime();
+        // Set under the lock once removed from memory; an updater holding it must re-register it
+        private boolean evicted;
+
+        private Conversation(String id, String created) {
+            this.id = id;
+            this.created = created;
+        }
+    }
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final Map<Integer, Conversation> byToken = new ConcurrentHashMap<>();
+    // Serializes find-or-create so concurrent updates of one conversation don't create it twice
+    private final ReentrantLock registrationLock = new ReentrantLock();
+    // Tokens known to have no persisted facts, so a miss does not query the index every turn
+    private final LinkedHashMap<Integer, Boolean> knownMisses = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock missLock = new ReentrantLock();
+
+    private final UserFactsStore store;
+    private final ExecutorService persistExecutor;
+    private final boolean persistenceEnabled;
+    private final int maxConversations;
+    private final int maxFactsPerConversation;
+    private final int maxTokensPerConversation;
+    private final Duration ttl;
+
+    public UserFactsService(UserFactsStore store,
+            @Value("${user-facts.persistence.enabled:true}") boolean persistenceEnabled,
+            @Value("${user-facts.max-conversations:10000}") int maxConversations,
+            @Value("${user-facts.max-facts-per-conversation:200}") int maxFactsPerConversation,
+            @Value("${user-facts.max-tokens-per-conversation:64}") int maxTokensPerConversation,
+            @Value("${user-facts.ttl-hours:168}") int ttlHours) {
+        this.store = store;
+        this.persistenceEnabled = persistenceEnabled;
+        this.maxConversations = maxConversations;
+        this.maxFactsPerConversation = maxFactsPerConversation;
+        this.maxTokensPerConversation = maxTokensPerConversation;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.persistExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "user-facts-persist");
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
     public List<ExtractedFactDTO> getFacts(List<Integer> chatTokens) {
-        List<ExtractedFactDTO> currentFacts = null;
-        if ((chatTokens != null) && (!chatTokens.isEmpty())) {
-            for (Integer chatToken : chatTokens) {
-                List<ExtractedFactDTO> existing = chatFacts.get(chatToken);
-                if (existing != null) {
-                    currentFacts = existing; // reuse same reference to keep alias keys pointing to same list
-                    break;
-                }
-            }
+        if ((chatTokens == null) || (chatTokens.isEmpty())) {
+            return null;
         }
-        return currentFacts;
+        Conversation conversation = this.find(chatTokens);
+        if (conversation == null) {
+            conversation = this.readThrough(chatTokens);
+        }
+        if (conversation == null) {
+            return null;
+        }
+        conversation.lastAccess = System.nanoTime();
+        List<ExtractedFactDTO> snapshot = conversation.snapshot;
+        return snapshot.isEmpty() ? null : snapshot;
     }
 
     public void updateFacts(List<ExtractedFactDTO> facts, List<Integer> chatTokens) {
         if (facts == null || facts.isEmpty() || chatTokens == null || chatTokens.isEmpty()) {
             return;
         }
-        // Find existing fact list by the first token that has data; else create new
-        List<ExtractedFactDTO> currentFacts = null;
-        for (Integer chatToken : chatTokens) {
-            List<ExtractedFactDTO> existing = chatFacts.get(chatToken);
+        Conversation conversation = this.find(chatTokens);
+        if (conversation == null) {
+            conversation = this.readThrough(chatTokens);
+        }
+        if (conversation == null) {
+            conversation = this.create(chatTokens);
+        }
+
+        conversation.lock.lock();
+        while (conversation.evicted) {
+            // Evicted while this update was on its way; adding to it would leave it outside the size and TTL bounds
+            conversation.lock.unlock();
+            conversation = this.revive(conversation, chatTokens);
+            conversation.lock.lock();
+        }
+        try {
+            for (ExtractedFactDTO incoming : facts) {
+                if (incoming != null) {
+                    this.apply(conversation, incoming);
+                }
+            }
+            while (conversation.facts.size() > maxFactsPerConversation) {
+                Iterator<Map.Entry<String, ExtractedFactDTO>> it = conversation.facts.entrySet().iterator();
+                Map.Entry<String, ExtractedFactDTO> oldest = it.next();
+                it.remove();
+                this.unindex(conversation, oldest.getKey(), oldest.getValue());
+            }
+            conversation.snapshot = List.copyOf(conversation.facts.values());
+            this.registerTokens(conversation, chatTokens);
+            conversation.lastAccess = System.nanoTime();
+        } finally {
+            conversation.lock.unlock();
+        }
+
+        if (log.isInfoEnabled()) {
+            log.info("[UserFacts] currentFacts updated: count={}", conversation.snapshot.size());
+        }
+        if (log.isDebugEnabled()) {
+            for (ExtractedFactDTO f : conversation.snapshot) {
+                log.debug("[UserFacts]   -> {}", f);
+            }
+        }
+        this.schedulePersist(conversation);
+    }
+
+    private void apply(Conversation conversation, ExtractedFactDTO incoming) {
+        String subject = trimToEmpty(incoming.getSubject());
+        String relation = trimToEmpty(incoming.getRelation());
+        String value = trimToEmpty(incoming.getValue());
+        String statement = trimToEmpty(incoming.getStatement());
+        String confidence = trimToEmpty(incoming.getConfidence());
+        String strategy = trimToEmpty(incoming.getMergeStrategy());
+
+        String srKey = key(subject, relation);
+        String factKey = key(subject, relation, statement);
+
+        boolean isOverwrite = strategy.equalsIgnoreCase("overwrite");
+        if (isOverwrite) {
+            String existingKey = conversation.bySubjectRelation.get(srKey);
+            if (existingKey != null) {
+                ExtractedFactDTO existing = conversation.facts.remove(existingKey);
+                this.unindex(conversation, existingKey, existing);
+                // Keep the stored subject/relation spelling; facts are replaced, never mutated, as readers hold snapshots
+                ExtractedFactDTO updated = copyOf(existing.getSubject(), existing.getRelation(), value, statement, confidence, "overwrite");
+                this.put(conversation, factKey, srKey, updated);
+                if (log.isDebugEnabled()) {
+                    log.debug("[UserFacts] Overwrite updated: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
+                }
+            } else {
+                this.put(conversation, factKey, srKey, copyOf(subject, relation, value, statement, confidence, "overwrite"));
+                if (log.isDebugEnabled()) {
+                    log.debug("[UserFacts] Overwrite added: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
+                }
+            }
+        } else {
+            // default to merge if not explicitly overwrite
+            if (conversation.facts.containsKey(factKey)) {
+                // Duplicate exists; confirm and skip
+                if (log.isDebugEnabled()) {
+                    log.debug("[UserFacts] Merge skipped duplicate: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
+                }
+            } else {
+                this.put(conversation, factKey, srKey, copyOf(subject, relation, value, statement, confidence, "merge"));
+                if (log.isDebugEnabled()) {
+                    log.debug("[UserFacts] Merge added: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
+                }
+            }
+        }
+    }
+
+    private void put(Conversation conversation, String factKey, String srKey, ExtractedFactDTO fact) {
+        ExtractedFactDTO replaced = conversation.facts.put(factKey, fact);
+        if (replaced == null) {
+            conversation.bySubjectRelation.putIfAbsent(srKey, factKey);
+        }
+    }
+
+    private void unindex(Conversation conversation, String factKey, ExtractedFactDTO fact) {
+        String srKey = key(fact.getSubject(), fact.getRelation());
+        if (factKey.equals(conversation.bySubjectRelation.get(srKey))) {
+            conversation.bySubjectRelation.remove(srKey);
+            // Another fact may share the subject/relation; only happens on removal, so a scan is fine
+            for (Map.Entry<String, ExtractedFactDTO> e : conversation.facts.entrySet()) {
+                if (srKey.equals(key(e.getValue().getSubject(), e.getValue().getRelation()))) {
+                    conversation.bySubjectRelation.put(srKey, e.getKey());
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the conversation of the tokens, unless a concurrent update
+     * already did. The tokens are published before the registration lock is
+     * released, so a second update of the same new conversation finds it.
+     */
+    private Conversation create(List<Integer> chatTokens) {
+        registrationLock.lock();
+        try {
+            Conversation existing = this.find(chatTokens);
             if (existing != null) {
-                currentFacts = existing; // reuse same reference to keep alias keys pointing to same list
-                break;
+                return existing;
             }
+            this.evictIfFull();
+            Conversation conversation = new Conversation(UUID.randomUUID().toString(), Instant.now().toString());
+            conversation.lock.lock();
+            try {
+                conversations.put(conversation.id, conversation);
+                return this.publish(conversation, chatTokens);
+            } finally {
+                conversation.lock.unlock();
+            }
+        } finally {
+            registrationLock.unlock();
         }
-        if (currentFacts == null) {
-            currentFacts = new ArrayList<>();
+    }
+
+    /**
+     * Puts an evicted conversation back into memory with its own and the
+     * given tokens, or returns the conversation that took over the tokens
+     * meanwhile.
+     */
+    private Conversation revive(Conversation conversation, List<Integer> chatTokens) {
+        registrationLock.lock();
+        try {
+            Conversation existing = this.find(chatTokens);
+            if (existing != null) {
+                return existing;
+            }
+            this.evictIfFull();
+            conversation.lock.lock();
+            try {
+                conversation.evicted = false;
+                conversations.put(conversation.id, conversation);
+                List<Integer> tokens = new ArrayList<>(conversation.tokens);
+                tokens.addAll(chatTokens);
+                return this.publish(conversation, tokens);
+            } finally {
+                conversation.lock.unlock();
+            }
+        } finally {
+            registrationLock.unlock();
         }
+    }
 
-        for (ExtractedFactDTO incoming : facts) {
-            if (incoming == null) {
+    /**
+     * Maps the tokens to the conversation if no other conversation has them.
+     * If one has, the conversation is withdrawn and that one is returned.
+     * Called under the registration lock and the conversation's lock.
+     */
+    private Conversation publish(Conversation conversation, List<Integer> chatTokens) {
+        List<Integer> published = new ArrayList<>();
+        for (Integer chatToken : chatTokens) {
+            if (chatToken == null) {
                 continue;
             }
-            String subject = trimToEmpty(incoming.getSubject());
-            String relation = trimToEmpty(incoming.getRelation());
-            String value = trimToEmpty(incoming.getValue());
-            String statement = trimToEmpty(incoming.getStatement());
-            String confidence = trimToEmpty(incoming.getConfidence());
-            String strategy = trimToEmpty(incoming.getMergeStrategy());
-
-            boolean isOverwrite = strategy.equalsIgnoreCase("overwrite");
-            boolean isMerge = !isOverwrite; // default to merge if not explicitly overwrite
-
-            if (isOverwrite) {
-                int idx = indexOfBySubjectRelation(currentFacts, subject, relation);
-                if (idx >= 0) {
-                    ExtractedFactDTO existing = currentFacts.get(idx);
-                    existing.setStatement(statement);
-                    existing.setConfidence(confidence);
-                    existing.setMergeStrategy("overwrite");
-                    if (log.isDebugEnabled()) {
-                        log.debug("[UserFacts] Overwrite updated: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
-                    }
-                } else {
-                    ExtractedFactDTO copy = copyOf(subject, relation, value, statement, confidence, "overwrite");
-                    currentFacts.add(copy);
-                    if (log.isDebugEnabled()) {
-                        log.debug("[UserFacts] Overwrite added: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
-                    }
-                }
-            } else if (isMerge) {
-                int idx = indexOfBySubjectRelationStatement(currentFacts, subject, relation, statement);
-                if (idx >= 0) {
-                    // Duplicate exists; confirm and skip
-                    if (log.isDebugEnabled()) {
-                        log.debug("[UserFacts] Merge skipped duplicate: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
-                    }
-                } else {
-                    ExtractedFactDTO copy = copyOf(subject, relation, value, statement, confidence, "merge");
-                    currentFacts.add(copy);
-                    if (log.isDebugEnabled()) {
-                        log.debug("[UserFacts] Merge added: subj='{}' rel='{}' stmt='{}'", subject, relation, statement);
-                    }
+            Conversation owner = byToken.putIfAbsent(chatToken, conversation);
+            if (owner != null && owner != conversation) {
+                for (Integer token : published) {
+                    byToken.remove(token, conversation);
                 }
+                conversations.remove(conversation.id, conversation);
+                conversation.evicted = true;
+                return owner;
             }
+            published.add(chatToken);
         }
+        for (Integer chatToken : published) {
+            conversation.tokens.remove(chatToken);
+            conversation.tokens.add(chatToken);
+            this.forgetMiss(chatToken);
+        }
+        return conversation;
+    }
 
-        // Log out the updated currentFacts
-        if (log.isInfoEnabled()) {
-            log.info("[UserFacts] currentFacts updated: count={}", currentFacts.size());
-            for (ExtractedFactDTO f : currentFacts) {
-                log.info("[UserFacts]   -> {}", f);
+    private Conversation find(List<Integer> chatTokens) {
+        for (Integer chatToken : chatTokens) {
+            if (chatToken != null) {
+                Conversation conversation = byToken.get(chatToken);
+                if (conversation != null) {
+                    return conversation;
+                }
             }
         }
+        return null;
+    }
 
-        // Store the same list reference for all alias tokens
+    private void registerTokens(Conversation conversation, List<Integer> chatTokens) {
         for (Integer chatToken : chatTokens) {
             if (chatToken == null) {
                 continue;
             }
-            chatFacts.put(chatToken, currentFacts);
+            conversation.tokens.remove(chatToken);
+            conversation.tokens.add(chatToken);
+            byToken.put(chatToken, conversation);
+            this.forgetMiss(chatToken);
+        }
+        // Old turns are no longer referenced by new messages' tokens
+        Iterator<Integer> it = conversation.tokens.iterator();
+        while (conversation.tokens.size() > maxTokensPerConversation && it.hasNext()) {
+            Integer oldest = it.next();
+            it.remove();
+            byToken.remove(oldest, conversation);
         }
     }
 
-    private static String trimToEmpty(String s) {
-        return s == null ? "" : s.trim();
+    /**
+     * Loads the conversation of the tokens from the index if it is not in
+     * memory, e.g. after it was evicted.
+     */
+    private Conversation readThrough(List<Integer> chatTokens) {
+        if (!persistenceEnabled || this.isKnownMiss(chatTokens)) {
+            return null;
+        }
+        UserFactsEntity entity;
+        try {
+            entity = store.findByTokens(chatTokens);
+        } catch (Exception e) {
+            log.debug("[UserFacts] Read-through failed: {}", e.getMessage());
+            return null;
+        }
+        if (entity == null) {
+            this.rememberMiss(chatTokens);
+            return null;
+        }
+        registrationLock.lock();
+        try {
+            Conversation existing = this.find(chatTokens);
+            if (existing != null) {
+                return existing;
+            }
+            return this.register(entity);
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the most recently modified conversations from the index into
+     * memory. Called once at startup, once OpenSearch is reachable.
+     *
+     * @return number of conversations loaded
+     */
+    public int loadPersisted() {
+        if (!persistenceEnabled) {
+            return 0;
+        }
+        List<UserFactsEntity> entities = store.findRecent(maxConversations);
+        int loaded = 0;
+        registrationLock.lock();
+        try {
+            for (UserFactsEntity entity : entities) {
+                if (entity.getTokens() == null || entity.getTokens().isEmpty() || this.find(entity.getTokens()) != null) {
+                    continue;
+                }
+                if (conversations.size() >= maxConversations) {
+                    break;
+                }
+                this.register(entity);
+                loaded++;
+            }
+        } finally {
+            registrationLock.unlock();
+        }
+        log.info("[UserFacts] Loaded {} persisted conversations", loaded);
+        return loaded;
     }
 
-    private static boolean eq(String a, String b) {
-        return trimToEmpty(a).equalsIgnoreCase(trimToEmpty(b));
+    private Conversation register(UserFactsEntity entity) {
+        this.evictIfFull();
+        Conversation conversation = new Conversation(entity.getId(), entity.getCreated());
+        conversation.lock.lock();
+        try {
+            if (entity.getFacts() != null) {
+                for (ExtractedFactDTO f : entity.getFacts()) {
+                    if (f != null) {
+                        this.put(conversation, key(f.getSubject(), f.getRelation(), f.getStatement()), key(f.getSubject(), f.getRelation()), f);
+                    }
+                }
+            }
+            conversation.snapshot = List.copyOf(conversation.facts.values());
+            conversations.put(conversation.id, conversation);
+            this.registerTokens(conversation, entity.getTokens());
+        } finally {
+            conversation.lock.unlock();
+        }
+        return conversation;
     }
 
-    private static int indexOfBySubjectRelation(List<ExtractedFactDTO> facts, String subject, String relation) {
-        if (facts == null) {
-            return -1;
+    private void schedulePersist(Conversation conversation) {
+        if (!persistenceEnabled || !conversation.persistPending.compareAndSet(false, true)) {
+            return;
         }
-        for (int i = 0; i < facts.size(); i++) {
-            ExtractedFactDTO f = facts.get(i);
-            if (f == null) {
-                continue;
+        persistExecutor.execute(() -> {
+            conversation.persistPending.set(false);
+            UserFactsEntity entity = new UserFactsEntity();
+            conversation.lock.lock();
+            try {
+                entity.setId(conversation.id);
+                entity.setTokens(new ArrayList<>(conversation.tokens));
+                entity.setFacts(conversation.snapshot);
+            } finally {
+                conversation.lock.unlock();
+            }
+            entity.setCreated(conversation.created);
+            entity.setModified(Instant.now().toString());
+            try {
+                store.save(entity);
+            } catch (Exception e) {
+                log.warn("[UserFacts] Persisting conversation {} failed: {}", conversation.id, e.getMessage());
             }
-            if (eq(f.getSubject(), subject) && eq(f.getRelation(), relation) && eq(f.getRelation(), relation)) {
-                return i;
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${user-facts.eviction-interval-ms:300000}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Conversation conversation : conversations.values()) {
+            if (now - conversation.lastAccess >= ttl.toNanos()) {
+                this.evict(conversation);
+                evicted++;
             }
         }
-        return -1;
+        if (evicted > 0) {
+            log.debug("[UserFacts] Evicted {} expired conversations from memory", evicted);
+        }
     }
 
-    private static int indexOfBySubjectRelationStatement(List<ExtractedFactDTO> facts, String subject, String relation, String statement) {
-        if (facts == null) {
-            return -1;
+    private void evictIfFull() {
+        while (conversations.size() >= maxConversations && !conversations.isEmpty()) {
+            conversations.values().stream()
+                    .min((a, b) -> Long.compare(a.lastAccess, b.lastAccess))
+                    .ifPresent(this::evict);
         }
-        for (int i = 0; i < facts.size(); i++) {
-            ExtractedFactDTO f = facts.get(i);
-            if (f == null) {
-                continue;
+    }
+
+    private void evict(Conversation conversation) {
+        // Only memory is freed; the conversation stays in the index and is read through when used again
+        conversations.remove(conversation.id, conversation);
+        conversation.lock.lock();
+        try {
+            conversation.evicted = true;
+            for (Integer token : conversation.tokens) {
+                byToken.remove(token, conversation);
+            }
+        } finally {
+            conversation.lock.unlock();
+        }
+    }
+
+    private boolean isKnownMiss(List<Integer> chatTokens) {
+        missLock.lock();
+        try {
+            for (Integer chatToken : chatTokens) {
+                if (chatToken != null && knownMisses.get(chatToken) != null) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            missLock.unlock();
+        }
+    }
+
+    private void rememberMiss(List<Integer> chatTokens) {
+        missLock.lock();
+        try {
+            for (Integer chatToken : chatTokens) {
+                if (chatToken != null) {
+                    knownMisses.put(chatToken, Boolean.TRUE);
+                }
             }
-            if (eq(f.getSubject(), subject) && eq(f.getRelation(), relation) && eq(f.getStatement(), statement)) {
-                return i;
+            Iterator<Integer> it = knownMisses.keySet().iterator();
+            while (knownMisses.size() > maxConversations && it.hasNext()) {
+                it.next();
+                it.remove();
             }
+        } finally {
+            missLock.unlock();
         }
-        return -1;
+    }
+
+    private void forgetMiss(Integer chatToken) {
+        missLock.lock();
+        try {
+            knownMisses.remove(chatToken);
+        } finally {
+            missLock.unlock();
+        }
+    }
+
+    public int size() {
+        return conversations.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persistExecutor.shutdown();
+    }
+
+    private static String trimToEmpty(String s) {
+        return s == null ? "" : s.trim();
+    }
+
+    private static String key(String subject, String relation) {
+        return trimToEmpty(subject).toLowerCase(Locale.ROOT) + DELIM + trimToEmpty(relation).toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String subject, String relation, String statement) {
+        return key(subject, relation) + DELIM + trimToEmpty(statement).toLowerCase(Locale.ROOT);
     }
 
     private static ExtractedFactDTO copyOf(String subject, String relation, String value, String statement, String confidence, String strategy) {
@@ -0,0 +1,114 @@
+package io.github.jrohila.simpleragserver.startup;
+
+import io.github.jrohila.simpleragserver.domain.ChunkEntity;
+import io.github.jrohila.simpleragserver.repository.ChunkService;
+import io.github.jrohila.simpleragserver.repository.IndicesManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.Refresh;
+import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the tokenCount field on chunks indexed before it existed. For
+ * every chunk index the field is added to the mapping, then chunks without a
+ * token count are read in batches (text only), counted and updated in place
+ * with partial bulk updates.
+ */
+@Component
+public class ChunkTokenCountMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(ChunkTokenCountMigration.class.getName());
+
+    private final OpenSearchClient client;
+
+    @Autowired
+    private IndicesManager indicesManager;
+
+    @Autowired
+    private ChunkService chunkService;
+
+    @Value("${chunks.token-count.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chunks.token-count.migration.batch-size:500}")
+    private int batchSize;
+
+    public ChunkTokenCountMigration(OpenSearchClient client) {
+        this.client = client;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Migrates all chunk indices. Failures are logged per index and do not
+     * stop the remaining indices.
+     *
+     * @return number of chunks updated
+     */
+    public long migrateAll() {
+        List<String> indices;
+        try {
+            indices = indicesManager.findIndices(ChunkEntity.class);
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "ChunkTokenCountMigration: could not list chunk indices: {0}", e.getMessage());
+            return 0;
+        }
+        long total = 0;
+        for (String indexName : indices) {
+            try {
+                total += this.migrate(indexName);
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "ChunkTokenCountMigration: migration of " + indexName + " failed", e);
+            }
+        }
+        if (total > 0) {
+            LOGGER.log(Level.INFO, "ChunkTokenCountMigration: backfilled tokenCount on {0} chunks in {1} indices", new Object[]{total, indices.size()});
+        }
+        return total;
+    }
+
+    private long migrate(String indexName) throws Exception {
+        client.indices().putMapping(m -> m.index(indexName).properties("tokenCount", p -> p.integer(n -> n)));
+
+        long updated = 0;
+        while (true) {
+            SearchResponse<ChunkEntity> resp = client.search(s -> s
+                    .index(indexName)
+                    .size(Math.max(1, batchSize))
+                    .source(src -> src.filter(f -> f.includes("text")))
+                    .query(q -> q.bool(b -> b.mustNot(mn -> mn.exists(e -> e.field("tokenCount"))))),
+                    ChunkEntity.class);
+            List<Hit<ChunkEntity>> hits = resp.hits().hits();
+            if (hits.isEmpty()) {
+                return updated;
+            }
+            List<BulkOperation> operations = new ArrayList<>(hits.size());
+            for (Hit<ChunkEntity> hit : hits) {
+                String text = hit.source() == null ? null : hit.source().getText();
+                Map<String, Object> partial = Map.of("tokenCount", chunkService.computeTokenCount(text));
+                operations.add(BulkOperation.of(op -> op.update(u -> u.id(hit.id()).document(partial))));
+            }
+            // wait_for refresh so the next search no longer returns these chunks
+            BulkResponse bulk = client.bulk(b -> b.index(indexName).refresh(Refresh.WaitFor).operations(operations));
+            long ok = bulk.items().stream().filter(item -> item.error() == null).count();
+            if (ok == 0) {
+                LOGGER.log(Level.WARNING, "ChunkTokenCountMigration: no chunks could be updated in {0}, stopping", indexName);
+                return updated;
+            }
+            updated += ok;
+            LOGGER.log(Level.FINE, "ChunkTokenCountMigration: {0} chunks updated in {1}", new Object[]{updated, indexName});
+        }
+    }
+}
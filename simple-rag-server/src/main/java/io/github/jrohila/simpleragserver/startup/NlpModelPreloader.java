@@ -0,0 +1,156 @@
+/*
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
+ * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
+ */
+package io.github.jrohila.simpleragserver.startup;
+
+import io.github.jrohila.simpleragnlp.OpenNlpFactory;
+import io.github.jrohila.simpleragserver.service.NlpService;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import opennlp.summarization.lexicalchaining.WordRelationshipDetermination;
+import opennlp.summarization.preprocess.IDFWordWeight;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the configured NLP models in parallel at startup, so the first chat
+ * or summarization request after a deploy does not wait for them. The
+ * instance reports not ready (GET /api/health/ready) until every configured
+ * model has finished loading. A model that fails to load is reported as
+ * failed and does not keep the instance unready; it fails again on first
+ * use, as it would without preloading.
+ *
+ * @author Jukka
+ */
+@Component
+public class NlpModelPreloader implements ApplicationRunner {
+
+    private static final Logger LOGGER = Logger.getLogger(NlpModelPreloader.class.getName());
+
+    public enum Model {
+        CORENLP, OPENNLP_SENTENCE, OPENNLP_POS, OPENNLP_LANGUAGE, WORDNET, IDF
+    }
+
+    public enum LoadState {
+        PENDING, LOADING, LOADED, FAILED
+    }
+
+    public record ModelStatus(Model model, LoadState state, long millis, String error) {
+    }
+
+    public record Readiness(boolean ready, List<ModelStatus> models) {
+    }
+
+    @Autowired
+    private NlpService nlpService;
+
+    private final List<Model> models;
+    private final int threads;
+
+    private final Map<Model, ModelStatus> statuses = new EnumMap<>(Model.class);
+    private final AtomicInteger remaining;
+    private volatile ExecutorService executor;
+
+    public NlpModelPreloader(
+            @Value("${processing.nlp.preload.models:CORENLP,OPENNLP_SENTENCE,OPENNLP_POS,OPENNLP_LANGUAGE,WORDNET,IDF}") List<Model> models,
+            @Value("${processing.nlp.preload.threads:4}") int threads) {
+        this.models = List.copyOf(new LinkedHashSet<>(models));
+        this.threads = Math.max(1, threads);
+        for (Model model : this.models) {
+            statuses.put(model, new ModelStatus(model, LoadState.PENDING, 0, null));
+        }
+        this.remaining = new AtomicInteger(this.models.size());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (models.isEmpty()) {
+            LOGGER.log(Level.INFO, "NlpModelPreloader: no models configured, ready");
+            return;
+        }
+        long t0 = System.nanoTime();
+        AtomicInteger counter = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.min(threads, models.size()), r -> {
+            Thread t = new Thread(r, "nlp-preload-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        for (Model model : models) {
+            executor.execute(() -> {
+                this.load(model);
+                if (remaining.decrementAndGet() == 0) {
+                    LOGGER.log(Level.INFO, "NlpModelPreloader: finished preloading {0} models in {1}ms, ready",
+                            new Object[]{models.size(), (System.nanoTime() - t0) / 1_000_000L});
+                }
+            });
+        }
+        executor.shutdown();
+    }
+
+    private void load(Model model) {
+        this.setStatus(new ModelStatus(model, LoadState.LOADING, 0, null));
+        long t0 = System.nanoTime();
+        try {
+            switch (model) {
+                case CORENLP ->
+                    nlpService.preloadCoreNlp();
+                case OPENNLP_SENTENCE ->
+                    OpenNlpFactory.getInstance().preloadEnSentenceModel();
+                case OPENNLP_POS ->
+                    OpenNlpFactory.getInstance().preloadEnPosModel();
+                case OPENNLP_LANGUAGE ->
+                    OpenNlpFactory.getInstance().preloadLanguageModel();
+                case WORDNET ->
+                    // The dictionary is loaded when the class is initialized
+                    new WordRelationshipDetermination();
+                case IDF ->
+                    IDFWordWeight.getInstance("/idf.csv");
+            }
+            long ms = (System.nanoTime() - t0) / 1_000_000L;
+            this.setStatus(new ModelStatus(model, LoadState.LOADED, ms, null));
+            LOGGER.log(Level.INFO, "NlpModelPreloader: {0} loaded in {1}ms", new Object[]{model, ms});
+        } catch (Throwable e) {
+            long ms = (System.nanoTime() - t0) / 1_000_000L;
+            this.setStatus(new ModelStatus(model, LoadState.FAILED, ms, e.getMessage()));
+            LOGGER.log(Level.WARNING, "NlpModelPreloader: " + model + " failed to load after " + ms + "ms", e);
+        }
+    }
+
+    private void setStatus(ModelStatus status) {
+        synchronized (statuses) {
+            statuses.put(status.model(), status);
+        }
+    }
+
+    public boolean isReady() {
+        return remaining.get() == 0;
+    }
+
+    public Readiness getReadiness() {
+        List<ModelStatus> list;
+        synchronized (statuses) {
+            list = new ArrayList<>(statuses.values());
+        }
+        return new Readiness(this.isReady(), list);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
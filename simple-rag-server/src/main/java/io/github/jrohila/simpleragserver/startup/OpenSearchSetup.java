@@ -20,7 +20,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.jrohila.simpleragserver.domain.ChatEntity;
 import io.github.jrohila.simpleragserver.domain.ChunkEntity;
 import io.github.jrohila.simpleragserver.domain.DocumentEntity;
+import io.github.jrohila.simpleragserver.domain.UserFactsEntity;
 import io.github.jrohila.simpleragserver.repository.IndicesManager;
+import io.github.jrohila.simpleragserver.service.UserFactsService;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,6 +45,12 @@ public class OpenSearchSetup implements ApplicationRunner {
     @Autowired
     private IndicesManager indicesManager;
 
+    @Autowired
+    private ChunkTokenCountMigration chunkTokenCountMigration;
+
+    @Autowired
+    private UserFactsService userFactsService;
+
     public OpenSearchSetup(OpenSearchClient client) {
         this.client = client;
     }
@@ -50,12 +58,32 @@ public class OpenSearchSetup implements ApplicationRunner {
     @Override
     public void run(ApplicationArguments args) throws Exception {
         waitForOpenSearch();
+        try {
+            indicesManager.loadExistingIndices();
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "OpenSearchSetup: could not load existing indices: {0}", e.getMessage());
+        }
         // Call individual creation methods here
         indicesManager.createIfNotExist(null, DocumentEntity.class);
         indicesManager.createIfNotExist(null, ChunkEntity.class);
         indicesManager.createIfNotExist(null, ChatEntity.class);
+        indicesManager.createIfNotExist(null, UserFactsEntity.class);
 
         createRffPipeline();
+
+        // Backfill chunk token counts in the background, chat works meanwhile (counting falls back to tokenizing)
+        if (chunkTokenCountMigration.isEnabled()) {
+            Thread.ofVirtual().name("chunk-token-count-migration").start(chunkTokenCountMigration::migrateAll);
+        }
+
+        // Restore user memory so restarts don't lose facts or trigger re-extraction
+        Thread.ofVirtual().name("user-facts-load").start(() -> {
+            try {
+                userFactsService.loadPersisted();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "OpenSearchSetup: could not load user facts: {0}", e.getMessage());
+            }
+        });
     }
 
     /**
@@ -8,100 +8,196 @@ import io.github.jrohila.simpleragserver.dto.MessageDTO;
 import io.github.jrohila.simpleragserver.service.NlpService;
 import io.github.jrohila.simpleragserver.service.NlpService.NlpEngine;
 import io.github.jrohila.simpleragserver.service.util.SearchTerm;
+import jakarta.annotation.PreDestroy;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
+ * Builds weighted boost terms from the query and the conversation history.
+ * Extracted terms are cached per message content hash, so in an ongoing
+ * conversation only the messages added since the previous turn are parsed.
+ * Parsing of uncached messages runs on a shared, bounded executor.
  *
  * @author Jukka
  */
 @Component
 public class BoostTermDetector {
 
+    private static final Logger log = LoggerFactory.getLogger(BoostTermDetector.class);
+
     @Autowired
     private NlpService nlpService;
 
+    private final NlpEngine engine;
+    private final int maxEntries;
+    private final ExecutorService executor;
+
+    private final LinkedHashMap<String, List<String>> termCache = new LinkedHashMap<>(256, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public BoostTermDetector(
+            @Value("${processing.chat.boost-terms.cache.max-entries:10000}") int maxEntries,
+            @Value("${processing.chat.boost-terms.threads:0}") int threads,
+            @Value("${processing.chat.boost-terms.engine:STANFORD_CORE_NLP}") NlpEngine engine) {
+        this.engine = engine;
+        this.maxEntries = maxEntries;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(poolSize, r -> {
+            Thread t = new Thread(r, "boost-terms-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     public List<SearchTerm> buildSearchTerms(String query, List<MessageDTO> messages, Double queryTermWeight, Double userMessageWeight, Double assistantMessageWeight) {
-        Set<String> terms = new HashSet<>();
+        // Resolve the terms of every distinct text once; only cache misses are parsed
+        Map<String, List<String>> termsByText = this.extractAll(query, messages);
+
         Map<String, SearchTerm> queryTermMap = new LinkedHashMap<>();
-        Map<String, SearchTerm> userMessageTermMap = new LinkedHashMap<>();
-        Map<String, SearchTerm> assistantMessageTermMap = new LinkedHashMap<>();    
+        addTerms(queryTermMap, termsByText.get(query), queryTermWeight);
+
+        // Merge in order of precedence: query terms, then user message terms, then assistant message terms
+        for (MessageDTO.Role role : List.of(MessageDTO.Role.USER, MessageDTO.Role.ASSISTANT)) {
+            Double weight = MessageDTO.Role.USER.equals(role) ? userMessageWeight : assistantMessageWeight;
+            for (MessageDTO message : messages) {
+                if (role.equals(message.getRole())) {
+                    addTerms(queryTermMap, termsByText.get(message.getContentAsString()), weight);
+                }
+            }
+        }
 
-        Thread termsFromQueryThread = new Thread(() -> {
-            List<String> queryTerms = nlpService.extractCandidateTerms(query, NlpEngine.STANFORD_CORE_NLP);
-            for (String queryTerm : queryTerms) {
+        return queryTermMap.values().stream().toList();
+    }
+
+    private static void addTerms(Map<String, SearchTerm> target, List<String> terms, Double weight) {
+        if (terms == null) {
+            return;
+        }
+        for (String t : terms) {
+            if (!target.containsKey(t)) {
                 SearchTerm term = new SearchTerm();
-                term.setTerm(queryTerm);
-                term.setBoostWeight(queryTermWeight);
+                term.setTerm(t);
+                term.setBoostWeight(weight);
                 term.setMandatory(false);
-                queryTermMap.put(queryTerm, term);
-                terms.add(queryTerm);
+                target.put(t, term);
             }
-        });
-        termsFromQueryThread.start();
+        }
+    }
 
-        Thread termsFromUserMessagesThread = new Thread(() -> {
-            for (MessageDTO message : messages) {
-                if (MessageDTO.Role.USER.equals(message.getRole())) {
-                    List<String> messageTerms = nlpService.extractCandidateTerms(message.getContentAsString(), NlpEngine.STANFORD_CORE_NLP);
-                    for (String messageTerm : messageTerms) {
-                        SearchTerm term = new SearchTerm();
-                        term.setTerm(messageTerm);
-                        term.setBoostWeight(userMessageWeight);
-                        term.setMandatory(false);
-                        userMessageTermMap.put(messageTerm, term);
-                    }
+    private Map<String, List<String>> extractAll(String query, List<MessageDTO> messages) {
+        List<String> texts = new ArrayList<>();
+        if (query != null) {
+            texts.add(query);
+        }
+        for (MessageDTO message : messages) {
+            if (MessageDTO.Role.USER.equals(message.getRole()) || MessageDTO.Role.ASSISTANT.equals(message.getRole())) {
+                String content = message.getContentAsString();
+                if (content != null) {
+                    texts.add(content);
                 }
             }
-        });
-        termsFromUserMessagesThread.start();
+        }
 
-        Thread termsFromAssistantMessagesThread = new Thread(() -> {
-            for (MessageDTO message : messages) {
-                if (MessageDTO.Role.ASSISTANT.equals(message.getRole())) {
-                    List<String> messageTerms = nlpService.extractCandidateTerms(message.getContentAsString(), NlpEngine.STANFORD_CORE_NLP);
-                    for (String messageTerm : messageTerms) {
-                        SearchTerm term = new SearchTerm();
-                        term.setTerm(messageTerm);
-                        term.setBoostWeight(assistantMessageWeight);
-                        term.setMandatory(false);
-                        assistantMessageTermMap.put(messageTerm, term);
-                    }
-                }
+        Map<String, List<String>> result = new HashMap<>();
+        Map<String, Future<List<String>>> pending = new LinkedHashMap<>();
+        for (String text : texts) {
+            if (result.containsKey(text) || pending.containsKey(text)) {
+                continue;
             }
-        });
-        termsFromAssistantMessagesThread.start();
+            String key = this.cacheKey(text);
+            List<String> cached = this.getCached(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                result.put(text, cached);
+            } else {
+                misses.incrementAndGet();
+                pending.put(text, executor.submit(() -> {
+                    List<String> terms = List.copyOf(nlpService.extractCandidateTerms(text, engine));
+                    this.putCached(key, terms);
+                    return terms;
+                }));
+            }
+        }
 
         try {
-            termsFromQueryThread.join();
-            termsFromUserMessagesThread.join();
-            termsFromAssistantMessagesThread.join();
+            for (Map.Entry<String, Future<List<String>>> entry : pending.entrySet()) {
+                try {
+                    result.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    log.warn("Boost term extraction failed for a message: {}", e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+                }
+            }
         } catch (InterruptedException e) {
+            pending.values().forEach(f -> f.cancel(true));
             Thread.currentThread().interrupt();
         }
+        if (log.isDebugEnabled()) {
+            log.debug("Boost terms: texts={} parsed={} cacheHits={} cacheMisses={}", texts.size(), pending.size(), hits.get(), misses.get());
+        }
+        return result;
+    }
 
-        // Combine all terms into the results list
-        for (String termKey : userMessageTermMap.keySet()) {
-            if (!terms.contains(termKey)) {
-                terms.add(termKey);
-                queryTermMap.put(termKey, userMessageTermMap.get(termKey));
-            }
+    private String cacheKey(String text) {
+        if (NlpEngine.STATISTICAL.equals(engine)) {
+            // Terms depend on the collection weights; entries of older weights age out of the LRU
+            return engine.name() + ":" + nlpService.getTermWeightsGeneration() + ":" + DigestUtils.sha256Hex(text);
         }
-        for (String termKey : assistantMessageTermMap.keySet()) {
-            if (!terms.contains(termKey)) {
-                terms.add(termKey);
-                queryTermMap.put(termKey, assistantMessageTermMap.get(termKey));
+        return engine.name() + ":" + DigestUtils.sha256Hex(text);
+    }
+
+    private List<String> getCached(String key) {
+        lock.lock();
+        try {
+            return termCache.get(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void putCached(String key, List<String> terms) {
+        lock.lock();
+        try {
+            termCache.put(key, terms);
+            var it = termCache.entrySet().iterator();
+            while (termCache.size() > maxEntries && it.hasNext()) {
+                it.next();
+                it.remove();
             }
+        } finally {
+            lock.unlock();
         }
+    }
 
-        return queryTermMap.values().stream().toList();
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
 }
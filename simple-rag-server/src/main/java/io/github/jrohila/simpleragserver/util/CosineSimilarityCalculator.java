@@ -16,8 +16,8 @@ public class CosineSimilarityCalculator {
      * @param errorBuffer The buffer percentage (e.g., 0.5 for 50%).
      * @return true if similarity is within buffered min/max, false otherwise.
      */
-    public static boolean isSimilar(List<Float> a, List<List<Float>> vectors, double errorBuffer) {
-        if (vectors == null || vectors.isEmpty() || a == null || a.isEmpty()) {
+    public static boolean isSimilar(float[] a, List<float[]> vectors, double errorBuffer) {
+        if (vectors == null || vectors.isEmpty() || a == null || a.length == 0) {
             return false;
         }
         double[] minMax = calculateMinMaxSimilarities(vectors);
@@ -32,63 +32,37 @@ public class CosineSimilarityCalculator {
         return avgSim >= bufferedMin && avgSim <= bufferedMax;
     }
 
-    // Cosine similarity between two List<Float>
-    public static double cosineSimilarity(List<Float> a, List<Float> b) {
-        double dot = 0.0;
-        double normA = 0.0;
-        double normB = 0.0;
-        for (int i = 0; i < a.size(); i++) {
-            float va  = a.get(i);
-            float vb = b.get(i);
-            dot += va  * vb;
-            normA += va  * va;
-            normB += vb * vb;
-        }
-        if (normA == 0.0 || normB == 0.0) {
-            return 0.0;
-        }
-        return dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    // Cosine similarity between two vectors
+    public static double cosineSimilarity(float[] a, float[] b) {
+        return VectorMath.cosine(a, b);
     }
 
     // Calculate min and max cosine similarities as mean ± k * stddev (k=2)
-    public static double[] calculateMinMaxSimilarities(List<List<Float>> vectors) {
+    public static double[] calculateMinMaxSimilarities(List<float[]> vectors) {
         int n = vectors.size();
         if (n < 2) {
             return new double[]{0.0, 0.0};
         }
-        List<Double> similarities = new java.util.ArrayList<>();
-        for (int i = 0; i < n; i++) {
-            List<Float> vecA = vectors.get(i);
-            for (int j = i + 1; j < n; j++) {
-                List<Float> vecB = vectors.get(j);
-                similarities.add(cosineSimilarity(vecA, vecB));
-            }
-        }
-        if (similarities.isEmpty()) {
+        // Vectors are normalized once, each pair is then a single dot product
+        double[] similarities = VectorMath.pairwiseCosine(vectors);
+        if (similarities.length == 0) {
             return new double[]{0.0, 0.0};
         }
-        DescriptiveStatistics stats = new DescriptiveStatistics();
-        for (double sim : similarities) {
-            stats.addValue(sim);
-        }
+        DescriptiveStatistics stats = new DescriptiveStatistics(similarities);
         double q1 = stats.getPercentile(25);
         double q3 = stats.getPercentile(75);
         double iqr = q3 - q1;
         double lowerFence = q1 - 1.5 * iqr;
         double upperFence = q3 + 1.5 * iqr;
         // Remove edge cases (outliers)
-        List<Double> filtered = new java.util.ArrayList<>();
+        DescriptiveStatistics filteredStats = new DescriptiveStatistics();
         for (double sim : similarities) {
             if (sim >= lowerFence && sim <= upperFence) {
-                filtered.add(sim);
+                filteredStats.addValue(sim);
             }
         }
-        if (filtered.isEmpty()) {
-            filtered = similarities;
-        }
-        DescriptiveStatistics filteredStats = new DescriptiveStatistics();
-        for (double sim : filtered) {
-            filteredStats.addValue(sim);
+        if (filteredStats.getN() == 0) {
+            filteredStats = stats;
         }
         double mean = filteredStats.getMean();
         double stddev = filteredStats.getStandardDeviation();
@@ -98,14 +72,11 @@ public class CosineSimilarityCalculator {
     }
 
     // Calculate average cosine similarity between a vector and a list of vectors
-    public static double calculateAverageSimilarity(List<Float> a, List<List<Float>> vectors) {
+    public static double calculateAverageSimilarity(float[] a, List<float[]> vectors) {
         if (vectors == null || vectors.isEmpty()) {
             return 0.0;
         }
-        DescriptiveStatistics stats = new DescriptiveStatistics();
-        for (List<Float> vec : vectors) {
-            stats.addValue(cosineSimilarity(a, vec));
-        }
+        DescriptiveStatistics stats = new DescriptiveStatistics(VectorMath.cosineOneToMany(a, vectors));
         double q1 = stats.getPercentile(25);
         double q3 = stats.getPercentile(75);
         double iqr = q3 - q1;
@@ -0,0 +1,50 @@
+package io.github.jrohila.simpleragserver.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Reads a JSON number array into a primitive float array without boxing.
+ * A null element is read as NaN so embedding validation rejects it, the same
+ * way a null entry in the former List of Float was rejected.
+ */
+public class FloatVectorDeserializer extends StdDeserializer<float[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    // Large enough for common embedding sizes (384, 768, 1024) without growing
+    private static final int INITIAL_CAPACITY = 1024;
+
+    public FloatVectorDeserializer() {
+        super(float[].class);
+    }
+
+    @Override
+    public float[] deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.isExpectedStartArrayToken()) {
+            return (float[]) ctxt.handleUnexpectedToken(float[].class, p);
+        }
+        float[] buffer = new float[INITIAL_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+            float value;
+            if (token == JsonToken.VALUE_NUMBER_FLOAT || token == JsonToken.VALUE_NUMBER_INT) {
+                value = p.getFloatValue();
+            } else if (token == JsonToken.VALUE_NULL) {
+                value = Float.NaN;
+            } else {
+                return (float[]) ctxt.handleUnexpectedToken(float[].class, p);
+            }
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = value;
+        }
+        return size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+    }
+}
@@ -0,0 +1,28 @@
+package io.github.jrohila.simpleragserver.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import java.io.IOException;
+
+/**
+ * Writes an embedding vector as a plain JSON number array straight from the
+ * primitive array, e.g. for OpenSearch knn_vector fields and REST responses.
+ */
+public class FloatVectorSerializer extends StdSerializer<float[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    public FloatVectorSerializer() {
+        super(float[].class);
+    }
+
+    @Override
+    public void serialize(float[] value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartArray(value, value.length);
+        for (float v : value) {
+            gen.writeNumber(v);
+        }
+        gen.writeEndArray();
+    }
+}
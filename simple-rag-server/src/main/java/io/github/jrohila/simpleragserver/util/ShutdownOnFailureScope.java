@@ -0,0 +1,92 @@
+package io.github.jrohila.simpleragserver.util;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a fixed set of subtasks on their own virtual threads and joins them
+ * under one deadline.
+ * - The first subtask to fail cancels (interrupts) all the others.
+ * - join throws that first failure, or TimeoutException when the deadline
+ *   passes, in which case the remaining subtasks are cancelled too.
+ * - close cancels anything still running, so a scope used with
+ *   try-with-resources never leaks threads past the block.
+ * Mirrors StructuredTaskScope.ShutdownOnFailure, which is still a preview API
+ * on Java 21.
+ */
+public final class ShutdownOnFailureScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final List<Future<?>> subtasks = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    public ShutdownOnFailureScope(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    public <T> Future<T> fork(Callable<T> task) {
+        Future<T> future = executor.submit(() -> {
+            try {
+                return task.call();
+            } catch (Exception | Error e) {
+                if (failure.compareAndSet(null, e)) {
+                    cancelAll();
+                }
+                throw e;
+            }
+        });
+        subtasks.add(future);
+        if (failure.get() != null) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for all subtasks, at most for the given time.
+     *
+     * @throws ExecutionException with the first failure of any subtask
+     * @throws TimeoutException if the deadline passed first
+     */
+    public void join(Duration timeout) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            for (Future<?> subtask : subtasks) {
+                try {
+                    subtask.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (CancellationException | ExecutionException e) {
+                    // Cancelled because a sibling failed; report the failure that caused it
+                    break;
+                }
+            }
+        } catch (TimeoutException | InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new ExecutionException(t);
+        }
+    }
+
+    private void cancelAll() {
+        for (Future<?> subtask : subtasks) {
+            subtask.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
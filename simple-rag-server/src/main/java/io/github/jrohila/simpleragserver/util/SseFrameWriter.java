@@ -0,0 +1,153 @@
+package io.github.jrohila.simpleragserver.util;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Writes streamed completion deltas to an SseEmitter as OpenAI-compatible
+ * chunk frames rendered from a StreamFrameTemplate.
+ * - With a coalescing window, adjacent deltas are merged into one frame: a
+ *   frame is written when the window since the first pending delta expires
+ *   or when the pending content reaches the byte limit, whichever is first.
+ * - Without a window every delta is written as its own frame immediately.
+ * A failed scheduled write closes the writer and runs the failure callback,
+ * since there is no caller to throw to.
+ */
+public final class SseFrameWriter {
+
+    private final SseEmitter emitter;
+    private final StreamFrameTemplate template;
+    private final long windowMs;
+    private final int maxBytes;
+    private final ScheduledExecutorService scheduler;
+    private final Runnable onSendFailure;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder pending = new StringBuilder(256);
+    private int pendingBytes;
+    private boolean first = true;
+    private boolean closed;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public SseFrameWriter(SseEmitter emitter, StreamFrameTemplate template, long windowMs, int maxBytes,
+            ScheduledExecutorService scheduler, Runnable onSendFailure) {
+        this.emitter = emitter;
+        this.template = template;
+        this.windowMs = windowMs;
+        this.maxBytes = maxBytes;
+        this.scheduler = scheduler;
+        this.onSendFailure = onSendFailure;
+    }
+
+    public void write(String delta) throws IOException {
+        if (delta == null || delta.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            pending.append(delta);
+            pendingBytes += utf8Length(delta);
+            if (windowMs <= 0 || (maxBytes > 0 && pendingBytes >= maxBytes)) {
+                this.cancelScheduledFlush();
+                this.flushPending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::scheduledFlush, windowMs, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes any pending content, the final frame with the finish reason and
+     * the [DONE] marker. The emitter itself is left for the caller to complete.
+     */
+    public void finish(String finishReason) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            this.cancelScheduledFlush();
+            this.flushPending();
+            closed = true;
+            emitter.send(SseEmitter.event().data(template.finish(finishReason)));
+            emitter.send(SseEmitter.event().data("[DONE]"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Drops pending content and stops writing, e.g. after cancellation. */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            this.cancelScheduledFlush();
+            pending.setLength(0);
+            pendingBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void scheduledFlush() {
+        lock.lock();
+        try {
+            scheduledFlush = null;
+            if (closed) {
+                return;
+            }
+            this.flushPending();
+        } catch (IOException | IllegalStateException e) {
+            closed = true;
+            onSendFailure.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushPending() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        String frame = template.delta(pending, first);
+        first = false;
+        pending.setLength(0);
+        pendingBytes = 0;
+        emitter.send(SseEmitter.event().data(frame));
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    private static int utf8Length(String s) {
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                // The pair encodes as 4 bytes; the low surrogate adds nothing
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+}
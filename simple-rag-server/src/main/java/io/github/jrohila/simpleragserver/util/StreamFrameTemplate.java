@@ -0,0 +1,83 @@
+package io.github.jrohila.simpleragserver.util;
+
+/**
+ * Renders OpenAI-compatible 'chat.completion.chunk' JSON frames for one
+ * stream. Everything that is constant for the stream (id, created, model) is
+ * rendered once; per frame only the delta content is escaped into a reused
+ * buffer. Not thread safe, callers serialize access per stream.
+ */
+public final class StreamFrameTemplate {
+
+    private final String head;
+    private final StringBuilder buffer = new StringBuilder(256);
+
+    public StreamFrameTemplate(String id, long created, String model) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"id\":");
+        appendJsonString(sb, id);
+        sb.append(",\"object\":\"chat.completion.chunk\",\"created\":").append(created).append(",\"model\":");
+        appendJsonString(sb, model);
+        sb.append(",\"choices\":[{\"index\":0,\"delta\":{");
+        this.head = sb.toString();
+    }
+
+    /** Frame carrying a content delta; the first frame of a stream also carries the assistant role. */
+    public String delta(CharSequence content, boolean first) {
+        buffer.setLength(0);
+        buffer.append(head);
+        if (first) {
+            buffer.append("\"role\":\"assistant\",");
+        }
+        buffer.append("\"content\":");
+        appendJsonString(buffer, content);
+        buffer.append("},\"finish_reason\":null}]}");
+        return buffer.toString();
+    }
+
+    /** Final frame with an empty delta and the given finish reason. */
+    public String finish(String finishReason) {
+        buffer.setLength(0);
+        buffer.append(head).append("\"content\":\"\"},\"finish_reason\":");
+        appendJsonString(buffer, finishReason);
+        buffer.append("}]}");
+        return buffer.toString();
+    }
+
+    /** Appends the value as a quoted JSON string (RFC 8259 escaping), or null. */
+    public static void appendJsonString(StringBuilder sb, CharSequence value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        int len = value.length();
+        int start = 0;
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            sb.append(value, start, i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                case '\b' -> sb.append("\\b");
+                case '\f' -> sb.append("\\f");
+                default -> {
+                    sb.append("\\u");
+                    String hex = Integer.toHexString(c);
+                    for (int p = hex.length(); p < 4; p++) {
+                        sb.append('0');
+                    }
+                    sb.append(hex);
+                }
+            }
+            start = i + 1;
+        }
+        sb.append(value, start, len);
+        sb.append('"');
+    }
+}
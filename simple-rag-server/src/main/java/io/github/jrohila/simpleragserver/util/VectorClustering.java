@@ -25,11 +25,10 @@ public final class VectorClustering {
 
         // Collect normalized vectors and keep mapping
         List<SearchResultDTO> data = new ArrayList<>();
-        List<double[]> X = new ArrayList<>();
+        List<float[]> X = new ArrayList<>();
         for (SearchResultDTO dto : items) {
-            double[] v = toArray(dto.getEmbedding());
-            if (v.length == 0) continue;
-            normalizeInPlace(v);
+            float[] v = dto.getEmbedding();
+            if (v == null || v.length == 0) continue;
             data.add(dto);
             X.add(v);
         }
@@ -41,7 +40,9 @@ public final class VectorClustering {
                 ? Math.max(5, (int) Math.round(Math.log(n) * 2))
                 : minPts;
 
-    double epsUse = (eps != null && eps > 0) ? eps : autoEps(X, Math.max(1, mpts - 1), 0.90);
+    // Vectors are normalized once; all pairwise cosine distances are computed once and shared
+    double[][] dist = VectorMath.cosineDistanceMatrix(X);
+    double epsUse = (eps != null && eps > 0) ? eps : autoEps(dist, Math.max(1, mpts - 1), 0.90);
     try { log.info("VectorClustering: params minPts={} eps={}", mpts, String.format(java.util.Locale.ROOT, "%.4f", epsUse)); } catch (Exception ignore) {}
 
         // Precompute neighbors within eps (cosine distance)
@@ -50,8 +51,7 @@ public final class VectorClustering {
             List<Integer> nb = new ArrayList<>();
             for (int j = 0; j < n; j++) {
                 if (i == j) continue;
-                double d = cosineDistance(X.get(i), X.get(j));
-                if (d <= epsUse) nb.add(j);
+                if (dist[i][j] <= epsUse) nb.add(j);
             }
             neighbors.add(nb.stream().mapToInt(Integer::intValue).toArray());
         }
@@ -99,29 +99,15 @@ public final class VectorClustering {
         return clusters;
     }
 
-    private static double[] toArray(List<Float> vec) {
-        if (vec == null || vec.isEmpty()) return new double[0];
-        double[] a = new double[vec.size()];
-        for (int i = 0; i < vec.size(); i++) a[i] = vec.get(i) == null ? 0.0 : vec.get(i);
-        return a;
-    }
-
-    private static void normalizeInPlace(double[] v) {
-        double s = 0.0; for (double x : v) s += x * x;
-        if (s <= 0) return;
-        double inv = 1.0 / Math.sqrt(s);
-        for (int i = 0; i < v.length; i++) v[i] *= inv;
-    }
-
-    private static double autoEps(List<double[]> X, int k, double quantile) {
-        int n = X.size();
+    private static double autoEps(double[][] dist, int k, double quantile) {
+        int n = dist.length;
         double[] kth = new double[n];
         for (int i = 0; i < n; i++) {
             double[] d = new double[n - 1];
             int p = 0;
             for (int j = 0; j < n; j++) {
                 if (i == j) continue;
-                d[p++] = cosineDistance(X.get(i), X.get(j));
+                d[p++] = dist[i][j];
             }
             Arrays.sort(d);
             int idx = Math.max(0, Math.min(d.length - 1, k - 1));
@@ -131,18 +117,4 @@ public final class VectorClustering {
         int qi = Math.max(0, Math.min(kth.length - 1, (int) Math.round(quantile * (kth.length - 1))));
         return kth[qi];
     }
-
-    /** Cosine distance for unit-normalized vectors is 1 - dot product; here safe for any vectors. */
-    private static double cosineDistance(double[] a, double[] b) {
-        double dot = 0.0, na = 0.0, nb = 0.0;
-        int len = Math.min(a.length, b.length);
-        for (int i = 0; i < len; i++) {
-            double ai = a[i], bi = b[i];
-            dot += ai * bi;
-            na += ai * ai;
-            nb += bi * bi;
-        }
-        if (na == 0.0 || nb == 0.0) return 1.0; // maximally distant if degenerate
-        return 1.0 - (dot / (Math.sqrt(na) * Math.sqrt(nb)));
-    }
 }
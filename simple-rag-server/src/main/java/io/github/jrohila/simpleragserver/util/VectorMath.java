@@ -0,0 +1,223 @@
+package io.github.jrohila.simpleragserver.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Vector math kernels over primitive float arrays.
+ * - Loops are unrolled with independent accumulators so the JIT can keep
+ *   several multiply-adds in flight and vectorize the element-wise parts.
+ * - Batched one-to-many and many-to-many variants normalize every input
+ *   vector once per call and then work on dot products only.
+ * - Vectors of different length are compared over their common prefix.
+ */
+public final class VectorMath {
+
+    private VectorMath() {}
+
+    public static double dot(float[] a, float[] b) {
+        int len = Math.min(a.length, b.length);
+        int upper = len & ~3;
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i < upper; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < len; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static double norm(float[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+
+    /** Cosine similarity, 0.0 if either vector has zero length. */
+    public static double cosine(float[] a, float[] b) {
+        int len = Math.min(a.length, b.length);
+        int upper = len & ~1;
+        double dot0 = 0.0, dot1 = 0.0, na0 = 0.0, na1 = 0.0, nb0 = 0.0, nb1 = 0.0;
+        int i = 0;
+        for (; i < upper; i += 2) {
+            float a0 = a[i], b0 = b[i], a1 = a[i + 1], b1 = b[i + 1];
+            dot0 += a0 * b0;
+            dot1 += a1 * b1;
+            na0 += a0 * a0;
+            na1 += a1 * a1;
+            nb0 += b0 * b0;
+            nb1 += b1 * b1;
+        }
+        for (; i < len; i++) {
+            float a0 = a[i], b0 = b[i];
+            dot0 += a0 * b0;
+            na0 += a0 * a0;
+            nb0 += b0 * b0;
+        }
+        double na = na0 + na1;
+        double nb = nb0 + nb1;
+        if (na == 0.0 || nb == 0.0) {
+            return 0.0;
+        }
+        return (dot0 + dot1) / (Math.sqrt(na) * Math.sqrt(nb));
+    }
+
+    public static double squaredL2(float[] a, float[] b) {
+        int len = Math.min(a.length, b.length);
+        int upper = len & ~3;
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        int i = 0;
+        for (; i < upper; i += 4) {
+            float d0 = a[i] - b[i];
+            float d1 = a[i + 1] - b[i + 1];
+            float d2 = a[i + 2] - b[i + 2];
+            float d3 = a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < len; i++) {
+            float d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    public static double l2(float[] a, float[] b) {
+        return Math.sqrt(squaredL2(a, b));
+    }
+
+    /** Returns a unit length copy of the vector; a zero vector is returned as zeros. */
+    public static float[] normalize(float[] a) {
+        float[] out = new float[a.length];
+        double n = norm(a);
+        if (n == 0.0) {
+            return out;
+        }
+        float inv = (float) (1.0 / n);
+        for (int i = 0; i < a.length; i++) {
+            out[i] = a[i] * inv;
+        }
+        return out;
+    }
+
+    public static float[][] normalizeAll(List<float[]> vectors) {
+        float[][] out = new float[vectors.size()][];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = normalize(vectors.get(i));
+        }
+        return out;
+    }
+
+    /** Dot products of one vector against many, e.g. cosine when all inputs are unit length. */
+    public static double[] dotOneToMany(float[] a, float[][] vectors) {
+        double[] out = new double[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            out[i] = dot(a, vectors[i]);
+        }
+        return out;
+    }
+
+    /** Cosine similarities of one vector against many, normalizing every vector once. */
+    public static double[] cosineOneToMany(float[] a, List<float[]> vectors) {
+        return dotOneToMany(normalize(a), normalizeAll(vectors));
+    }
+
+    /**
+     * Cosine similarity of every distinct pair (i &lt; j), in row order.
+     *
+     * @return Array of n * (n - 1) / 2 similarities
+     */
+    public static double[] pairwiseCosine(List<float[]> vectors) {
+        float[][] units = normalizeAll(vectors);
+        int n = units.length;
+        double[] out = new double[n * (n - 1) / 2];
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            float[] u = units[i];
+            for (int j = i + 1; j < n; j++) {
+                out[p++] = dot(u, units[j]);
+            }
+        }
+        return out;
+    }
+
+    /** Full symmetric cosine distance (1 - cosine) matrix with a zero diagonal. */
+    public static double[][] cosineDistanceMatrix(List<float[]> vectors) {
+        float[][] units = normalizeAll(vectors);
+        int n = units.length;
+        double[][] out = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double d = 1.0 - dot(units[i], units[j]);
+                out[i][j] = d;
+                out[j][i] = d;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Euclidean distance of every distinct pair (i &lt; j), in row order.
+     *
+     * @return Array of n * (n - 1) / 2 distances
+     */
+    public static double[] pairwiseL2(List<float[]> vectors) {
+        int n = vectors.size();
+        double[] out = new double[n * (n - 1) / 2];
+        int p = 0;
+        for (int i = 0; i < n; i++) {
+            float[] a = vectors.get(i);
+            for (int j = i + 1; j < n; j++) {
+                out[p++] = l2(a, vectors.get(j));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Read-only List view over a vector for APIs that only accept List of
+     * Float (e.g. the OpenSearch kNN query builder). Elements are boxed on
+     * access, the array is not copied.
+     */
+    public static List<Float> asList(float[] vector) {
+        return new FloatListView(vector);
+    }
+
+    /** Unboxes a vector; null elements become 0. */
+    public static float[] toArray(List<Float> vector) {
+        if (vector == null) {
+            return new float[0];
+        }
+        float[] out = new float[vector.size()];
+        for (int i = 0; i < out.length; i++) {
+            Float v = vector.get(i);
+            out[i] = v == null ? 0.0f : v;
+        }
+        return out;
+    }
+
+    private static final class FloatListView extends AbstractList<Float> implements RandomAccess {
+
+        private final float[] values;
+
+        private FloatListView(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Float get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
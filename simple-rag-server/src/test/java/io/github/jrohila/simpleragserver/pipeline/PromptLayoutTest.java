@@ -0,0 +1,93 @@
+package io.github.jrohila.simpleragserver.pipeline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import io.github.jrohila.simpleragserver.dto.MessageDTO;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Renders two consecutive turns of the same conversation the way
+ * ContextAdditionPipe does (context first, then memory) and checks how much
+ * of the turn N prompt is repeated unchanged at the start of turn N+1.
+ */
+public class PromptLayoutTest {
+
+    private static final MessageDTO SYSTEM = new MessageDTO(MessageDTO.Role.SYSTEM, "You are a helpful assistant.");
+
+    private static List<MessageDTO> render(PromptLayout layout, List<MessageDTO> history, String context, String memory) {
+        List<MessageDTO> messages = new ArrayList<>(history);
+        layout.inject(messages, new MessageDTO(MessageDTO.Role.SYSTEM, context));
+        layout.inject(messages, new MessageDTO(MessageDTO.Role.SYSTEM, memory));
+        return messages;
+    }
+
+    private static int commonPrefix(List<MessageDTO> a, List<MessageDTO> b) {
+        int n = 0;
+        while (n < a.size() && n < b.size() && a.get(n).equals(b.get(n))) {
+            n++;
+        }
+        return n;
+    }
+
+    private static List<MessageDTO> turn1() {
+        return List.of(SYSTEM, new MessageDTO(MessageDTO.Role.USER, "What is the refund policy?"));
+    }
+
+    private static List<MessageDTO> turn2() {
+        List<MessageDTO> history = new ArrayList<>(turn1());
+        history.add(new MessageDTO(MessageDTO.Role.ASSISTANT, "Refunds are accepted within 30 days."));
+        history.add(new MessageDTO(MessageDTO.Role.USER, "Does that apply to sale items?"));
+        return history;
+    }
+
+    @Test
+    public void prefixStableKeepsPreviousTurnAsPrefix() {
+        List<MessageDTO> first = render(PromptLayout.PREFIX_STABLE, turn1(), "<documents>refunds</documents>", "{\"facts\":[]}");
+        List<MessageDTO> second = render(PromptLayout.PREFIX_STABLE, turn2(), "<documents>sale items</documents>", "{\"facts\":[1]}");
+
+        // The system prompt is untouched and per-turn messages sit right before the newest user message
+        assertEquals(SYSTEM, first.get(0));
+        assertEquals(MessageDTO.Role.USER, second.get(second.size() - 1).getRole());
+        assertEquals("<documents>sale items</documents>", second.get(second.size() - 3).getContentAsString());
+        assertEquals("{\"facts\":[1]}", second.get(second.size() - 2).getContentAsString());
+
+        // Everything the first turn sent before its own context is sent again unchanged
+        assertEquals(turn1().size() - 1, commonPrefix(first, second));
+    }
+
+    @Test
+    public void prefixStableSharesWholeHistoryBetweenTurns() {
+        List<MessageDTO> second = render(PromptLayout.PREFIX_STABLE, turn2(), "ctx-2", "mem-2");
+        List<MessageDTO> history = new ArrayList<>(turn2());
+        history.add(new MessageDTO(MessageDTO.Role.ASSISTANT, "Yes, except clearance items."));
+        history.add(new MessageDTO(MessageDTO.Role.USER, "And gift cards?"));
+        List<MessageDTO> third = render(PromptLayout.PREFIX_STABLE, history, "ctx-3", "mem-3");
+
+        // Turn N+1 starts with the full turn N history; only its injected messages differ
+        assertEquals(turn2().size() - 1, commonPrefix(second, third));
+        assertEquals(turn2().subList(0, turn2().size() - 1), third.subList(0, turn2().size() - 1));
+    }
+
+    @Test
+    public void contextFirstChangesPrefixEveryTurn() {
+        List<MessageDTO> first = render(PromptLayout.CONTEXT_FIRST, turn1(), "ctx-1", "mem-1");
+        List<MessageDTO> second = render(PromptLayout.CONTEXT_FIRST, turn2(), "ctx-2", "mem-2");
+
+        assertEquals("mem-1", first.get(0).getContentAsString());
+        assertEquals("ctx-1", first.get(1).getContentAsString());
+        assertNotEquals(first.get(0), second.get(0));
+        assertEquals(0, commonPrefix(first, second));
+    }
+
+    @Test
+    public void prefixStableWithoutUserMessageAppends() {
+        List<MessageDTO> messages = new ArrayList<>(List.of(SYSTEM));
+        PromptLayout.PREFIX_STABLE.inject(messages, new MessageDTO(MessageDTO.Role.SYSTEM, "ctx"));
+
+        assertEquals(2, messages.size());
+        assertEquals("ctx", messages.get(1).getContentAsString());
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.jrohila.simpleragserver.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+public class SseFrameWriterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    /** Captures the data of every event instead of writing to a response. */
+    private static class CapturingEmitter extends SseEmitter {
+
+        final List<String> data = new ArrayList<>();
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            for (var part : builder.build()) {
+                if (part.getData() instanceof String s && !s.startsWith("data:") && !s.equals("\n\n")) {
+                    data.add(s);
+                }
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void framesAreValidChunkJson() throws Exception {
+        StreamFrameTemplate template = new StreamFrameTemplate("chatcmpl-1", 1700000000L, "llama\"3");
+        String content = "quote \" backslash \\ newline \n tab \t ctrl \u0001 unicode ä😀";
+
+        JsonNode first = MAPPER.readTree(template.delta(content, true));
+        assertEquals("chatcmpl-1", first.get("id").asText());
+        assertEquals("chat.completion.chunk", first.get("object").asText());
+        assertEquals(1700000000L, first.get("created").asLong());
+        assertEquals("llama\"3", first.get("model").asText());
+        JsonNode choice = first.get("choices").get(0);
+        assertEquals(0, choice.get("index").asInt());
+        assertEquals("assistant", choice.get("delta").get("role").asText());
+        assertEquals(content, choice.get("delta").get("content").asText());
+        assertTrue(choice.get("finish_reason").isNull());
+
+        JsonNode next = MAPPER.readTree(template.delta("x", false)).get("choices").get(0);
+        assertFalse(next.get("delta").has("role"));
+
+        JsonNode last = MAPPER.readTree(template.finish("stop")).get("choices").get(0);
+        assertEquals("", last.get("delta").get("content").asText());
+        assertEquals("stop", last.get("finish_reason").asText());
+    }
+
+    @Test
+    public void withoutWindowEveryDeltaIsAFrame() throws Exception {
+        CapturingEmitter emitter = new CapturingEmitter();
+        SseFrameWriter writer = new SseFrameWriter(emitter, new StreamFrameTemplate("id", 1L, "m"), 0, 512, scheduler, () -> {
+        });
+        writer.write("Hel");
+        writer.write("lo");
+        writer.finish("stop");
+
+        assertEquals(4, emitter.data.size());
+        assertEquals("Hel", contentOf(emitter.data.get(0)));
+        assertEquals("lo", contentOf(emitter.data.get(1)));
+        assertEquals("[DONE]", emitter.data.get(3));
+    }
+
+    @Test
+    public void windowCoalescesUntilByteLimit() throws Exception {
+        CapturingEmitter emitter = new CapturingEmitter();
+        SseFrameWriter writer = new SseFrameWriter(emitter, new StreamFrameTemplate("id", 1L, "m"), 60000, 6, scheduler, () -> {
+        });
+        writer.write("ab");
+        writer.write("cd");
+        assertEquals(0, emitter.data.size());
+        writer.write("ef");
+        assertEquals(1, emitter.data.size());
+        assertEquals("abcdef", contentOf(emitter.data.get(0)));
+
+        // The tail is flushed by finish, ahead of the final frame
+        writer.write("g");
+        writer.finish("stop");
+        assertEquals("g", contentOf(emitter.data.get(1)));
+        assertEquals("stop", MAPPER.readTree(emitter.data.get(2)).get("choices").get(0).get("finish_reason").asText());
+    }
+
+    @Test
+    public void windowExpiryFlushesPendingDeltas() throws Exception {
+        CapturingEmitter emitter = new CapturingEmitter();
+        SseFrameWriter writer = new SseFrameWriter(emitter, new StreamFrameTemplate("id", 1L, "m"), 20, 4096, scheduler, () -> {
+        });
+        writer.write("one ");
+        writer.write("two");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (currentSize(emitter) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        synchronized (emitter) {
+            assertEquals(1, emitter.data.size());
+            assertEquals("one two", contentOf(emitter.data.get(0)));
+        }
+    }
+
+    private static int currentSize(CapturingEmitter emitter) {
+        synchronized (emitter) {
+            return emitter.data.size();
+        }
+    }
+
+    private static String contentOf(String frame) throws IOException {
+        return MAPPER.readTree(frame).get("choices").get(0).get("delta").get("content").asText();
+    }
+}